@@ -1,72 +1,760 @@
+import java.io.*; // IO exceptions
+import java.nio.*; // buffers
+import java.nio.channels.*; // file channels
+import java.nio.file.*; // paths and files
 import java.util.*; // import utility classes
-// ================= TRIE NODE =================
-class TrieNode{
-    Map<Character,TrieNode> children; // child nodes
-    Map<String,Integer> freqMap; // sentence -> frequency
-    public TrieNode(){
-        children=new HashMap<>(); // initialize children
-        freqMap=new HashMap<>(); // initialize frequency map
+import java.util.concurrent.*; // scheduled merges
+// ================= SENTENCE TABLE =================
+// open-addressed sentence -> dense id table; frequencies live in one int array.
+// writers are serialized; lock-free readers see grown arrays through the volatile fields
+class SentenceTable{
+    private int[] slots; // hash slots holding id+1 (0 = empty), writer only
+    private volatile String[] sentences; // id -> sentence, replaced when grown
+    private volatile int[] freq; // id -> frequency, replaced when grown
+    private volatile int size; // number of sentences, bumped after the id is filled
+    public SentenceTable(){
+        slots=new int[16]; // initial table
+        sentences=new String[8]; // initial id space
+        freq=new int[8];
+    }
+    public String sentence(int id){return sentences[id];} // O(1)
+    public int freq(int id){return freq[id];} // O(1)
+    public int size(){return size;} // number of sentences
+    static int mix(int h){return h^(h>>>16);} // spread hash bits
+    // Time Complexity: O(L) expected, -1 if absent
+    public int find(String sentence){
+        int mask=slots.length-1;
+        String[] names=sentences; // one volatile read
+        for(int i=mix(sentence.hashCode())&mask;slots[i]!=0;i=(i+1)&mask) // linear probe
+            if(names[slots[i]-1].equals(sentence))return slots[i]-1;
+        return -1; // not stored
+    }
+    // Time Complexity: O(L) expected
+    public int add(String sentence,int count){
+        int mask=slots.length-1;
+        int i=mix(sentence.hashCode())&mask;
+        String[] names=sentences; // one volatile read per array
+        int[] counts=freq;
+        for(;slots[i]!=0;i=(i+1)&mask){ // linear probe
+            int id=slots[i]-1;
+            if(names[id].equals(sentence)){counts[id]+=count;return id;} // existing sentence
+        }
+        if((size+1)*2>slots.length){ // keep load factor <= 0.5
+            rehash(slots.length*2);
+            return add(sentence,count);
+        }
+        int id=size; // next dense id
+        if(id==names.length){ // grow id space
+            names=Arrays.copyOf(names,id*2);
+            counts=Arrays.copyOf(counts,id*2);
+        }
+        names[id]=sentence; // fill before publishing
+        counts[id]=count;
+        sentences=names; // publish grown arrays
+        freq=counts;
+        slots[i]=id+1;
+        size=id+1; // id visible to readers
+        return id;
+    }
+    private void rehash(int capacity){ // O(N)
+        slots=new int[capacity];
+        int mask=capacity-1;
+        String[] names=sentences;
+        for(int id=0;id<size;id++){
+            int i=mix(names[id].hashCode())&mask;
+            while(slots[i]!=0)i=(i+1)&mask;
+            slots[i]=id+1;
+        }
+    }
+}
+// ================= RADIX NODE =================
+// path-compressed node; the edge label is a slice of an already stored sentence.
+// once published through SearchAutocomplete.root a node is never mutated again
+class RadixNode{
+    private static final char[] NO_KEYS=new char[0]; // shared by leaves
+    private static final RadixNode[] NO_CHILDREN=new RadixNode[0];
+    int labelId; // sentence holding the edge label
+    int labelStart; // label start (inclusive)
+    int labelEnd; // label end (exclusive)
+    char[] childKeys; // first char of each child edge, sorted
+    RadixNode[] children; // child nodes aligned with childKeys
+    int[] top; // best sentence ids through this node, best first (-1 = free slot)
+    public RadixNode(int labelId,int labelStart,int labelEnd,int k){
+        this.labelId=labelId; // assign label
+        this.labelStart=labelStart;
+        this.labelEnd=labelEnd;
+        this.childKeys=NO_KEYS; // no children yet
+        this.children=NO_CHILDREN;
+        this.top=new int[k]; // bounded top-k list
+        Arrays.fill(top,-1);
+    }
+    // Time Complexity: O(fanout + K); childKeys is shared since only children/top get rewritten in place
+    public RadixNode copy(){
+        RadixNode c=new RadixNode(labelId,labelStart,labelEnd,0);
+        c.childKeys=childKeys; // immutable unless replaced by addChild
+        c.children=children.length==0?children:children.clone(); // private child slots
+        c.top=top.clone(); // private top-k
+        return c;
+    }
+    public int find(char c){return Arrays.binarySearch(childKeys,c);} // O(log fanout)
+    // Time Complexity: O(fanout)
+    public void addChild(char c,RadixNode child){
+        int pos=-(find(c)+1); // insertion point
+        int n=childKeys.length;
+        char[] keys=new char[n+1];
+        RadixNode[] kids=new RadixNode[n+1];
+        System.arraycopy(childKeys,0,keys,0,pos); // copy left part
+        System.arraycopy(children,0,kids,0,pos);
+        keys[pos]=c; // new child
+        kids[pos]=child;
+        System.arraycopy(childKeys,pos,keys,pos+1,n-pos); // copy right part
+        System.arraycopy(children,pos,kids,pos+1,n-pos);
+        childKeys=keys;
+        children=kids;
     }
 }
 // ================= SEARCH AUTOCOMPLETE =================
+// readers walk whatever root they loaded without locking; inserts are serialized,
+// copy the nodes on their path and publish a new root
 class SearchAutocomplete{
-    private TrieNode root; // trie root
-    private StringBuilder currentInput; // current typed prefix
+    private static final int TOP_K=3; // suggestions per keystroke
+    private volatile RadixNode root; // published trie root
+    private SentenceTable table; // sentence id -> text and frequency
+    private boolean building; // bulk load: mutate in place, nothing published yet
+    private AutocompleteSession defaultSession; // backs the single-user getSuggestions
     // ================= CONSTRUCTOR =================
-    // Time Complexity: O(total characters in phrases)
+    // Time Complexity: O(total characters in phrases × K)
     public SearchAutocomplete(String[] phrases,int[] counts){
-        root=new TrieNode(); // create root
-        currentInput=new StringBuilder(); // initialize buffer
+        root=new RadixNode(0,0,0,TOP_K); // create root with empty label
+        table=new SentenceTable(); // initialize frequency table
+        building=true; // no readers yet
         for(int i=0;i<phrases.length;i++)
             insert(phrases[i],counts[i]); // load historical data
+        building=false; // from now on copy on write
+        defaultSession=newSession(); // legacy single-user cursor
+    }
+    public AutocompleteSession newSession(){return new AutocompleteSession(this);} // O(1)
+    RadixNode root(){return root;} // current snapshot
+    String sentence(int id){return table.sentence(id);} // O(1)
+    int freq(int id){return table.freq(id);} // O(1)
+    int sentenceCount(){return table.size();} // O(1)
+    synchronized int freqOf(String sentence){ // O(L), -1 if absent
+        int id=table.find(sentence);
+        return id<0?-1:table.freq(id);
+    }
+    private RadixNode own(RadixNode node){return building?node:node.copy();} // node safe to mutate
+    // sort by frequency desc, ASCII asc
+    private int compare(int a,int b){
+        int fa=table.freq(a),fb=table.freq(b);
+        if(fa!=fb)return fb-fa; // higher freq first
+        return table.sentence(a).compareTo(table.sentence(b)); // ASCII order
+    }
+    // ================= UPDATE NODE TOP-K =================
+    // Time Complexity: O(K); counts only grow, so a sentence can only move up
+    private void offer(RadixNode node,int id){
+        int[] top=node.top;
+        int pos=0; // current slot of sentence, or first free slot
+        while(pos<top.length&&top[pos]!=-1&&top[pos]!=id)pos++;
+        if(pos==top.length){ // not listed and list is full
+            if(compare(id,top[pos-1])>=0)return; // does not beat the last entry
+            pos--; // evict the last entry
+        }
+        while(pos>0&&compare(id,top[pos-1])<0){ // bubble up
+            top[pos]=top[pos-1];
+            pos--;
+        }
+        top[pos]=id; // place sentence
     }
     // ================= INSERT SENTENCE =================
+    // Time Complexity: O(L × K) plus O(fanout) per copied node
+    synchronized void insert(String sentence,int count){
+        if(sentence.isEmpty())return; // nothing to index
+        int id=table.add(sentence,count); // update global frequency
+        RadixNode newRoot=own(root); // private copy of the root
+        RadixNode curr=newRoot;
+        int i=0; // matched characters
+        while(i<sentence.length()){ // descend edge by edge
+            int idx=curr.find(sentence.charAt(i));
+            if(idx<0){ // no edge → hang remainder as a leaf
+                RadixNode leaf=new RadixNode(id,i,sentence.length(),TOP_K);
+                curr.addChild(sentence.charAt(i),leaf);
+                offer(leaf,id);
+                break;
+            }
+            RadixNode child=own(curr.children[idx]); // private copy of the path node
+            String label=table.sentence(child.labelId); // label source
+            int len=child.labelEnd-child.labelStart;
+            int j=1; // first char already matched by find
+            while(j<len&&i+j<sentence.length()&&label.charAt(child.labelStart+j)==sentence.charAt(i+j))j++;
+            if(j<len){ // diverges inside the edge → split it
+                RadixNode mid=new RadixNode(child.labelId,child.labelStart,child.labelStart+j,TOP_K);
+                System.arraycopy(child.top,0,mid.top,0,TOP_K); // same sentences pass through
+                child.labelStart+=j; // shorten lower edge
+                mid.addChild(label.charAt(child.labelStart),child);
+                child=mid;
+            }
+            curr.children[idx]=child; // first char unchanged
+            offer(child,id); // sentence passes through child
+            i+=j;
+            curr=child;
+        }
+        root=newRoot; // publish snapshot
+    }
+    // ================= GET SUGGESTIONS =================
+    // single-user entry point kept for existing callers; not thread safe, use newSession() per user
+    // Time Complexity: O(log fanout + K) per keystroke
+    public List<String> getSuggestions(char ch){
+        return defaultSession.getSuggestions(ch); // delegate to default cursor
+    }
+}
+// ================= RADIX CURSOR =================
+// position inside one radix snapshot: the node whose edge holds the last typed char
+class RadixCursor{
+    private RadixNode node; // current node (null = no match)
+    private int matched; // chars of node's edge consumed so far
+    public void start(RadixNode root){node=root;matched=0;} // pin snapshot
+    public RadixNode node(){return node;} // null once off the trie
+    // Time Complexity: O(log fanout)
+    public void advance(char ch,SearchAutocomplete system){
+        if(node==null)return; // already off the trie
+        if(matched==node.labelEnd-node.labelStart){ // edge exhausted → take child edge
+            int idx=node.find(ch);
+            node=idx<0?null:node.children[idx];
+            matched=1; // first char matched by find
+            return;
+        }
+        if(system.sentence(node.labelId).charAt(node.labelStart+matched)==ch)matched++; // stay in edge
+        else node=null; // mismatch inside edge
+    }
+}
+// ================= SESSION CURSOR =================
+// one per user; remembers the node reached so each keystroke advances a single character
+class AutocompleteSession{
+    private final SearchAutocomplete system; // shared trie
+    private final RadixCursor cursor; // position in the pinned snapshot
+    private StringBuilder currentInput; // current typed prefix
+    public AutocompleteSession(SearchAutocomplete system){
+        this.system=system; // assign trie
+        this.cursor=new RadixCursor(); // create cursor
+        this.currentInput=new StringBuilder(); // initialize buffer
+    }
+    // ================= GET SUGGESTIONS =================
+    // Time Complexity: O(log fanout + K)
+    public List<String> getSuggestions(char ch){
+        // end of sentence
+        if(ch=='#'){
+            system.insert(currentInput.toString(),1); // save new sentence
+            currentInput=new StringBuilder(); // start a new query
+            return new ArrayList<>(); // return empty list
+        }
+        currentInput.append(ch); // append character
+        if(currentInput.length()==1)cursor.start(system.root()); // first char: pin the latest snapshot
+        cursor.advance(ch,system); // move cursor one edge position
+        RadixNode node=cursor.node();
+        if(node==null)return new ArrayList<>(); // no match
+        // read precomputed top 3
+        List<String> result=new ArrayList<>(node.top.length);
+        for(int id:node.top){
+            if(id==-1)break; // fewer than K sentences
+            result.add(system.sentence(id));
+        }
+        return result;
+    }
+}
+// ================= INDEX FILE FORMAT =================
+// all sections are big-endian ints except the trailing UTF-16 char blob:
+//   header  : MAGIC, VERSION, K, nodeCount, sentenceCount, charCount, hashCapacity
+//   nodes   : nodeCount × (key, labelId, labelStart, labelEnd, firstChild, childCount, top[K]) in BFS order,
+//             so the children of a node are contiguous and sorted by key
+//   freq    : sentenceCount ints
+//   offsets : sentenceCount+1 ints into the char blob
+//   hash    : hashCapacity open-addressed slots holding id+1 (0 = empty), keyed by String.hashCode
+//   chars   : charCount UTF-16 code units
+// ================= INDEX WRITER =================
+class AutocompleteIndexWriter{
+    static final int MAGIC=0x41435458; // "ACTX"
+    static final int VERSION=1; // format version
+    static final int HEADER_INTS=7; // header size
+    // Time Complexity: O(nodes × K + total sentence characters)
+    public static void write(SearchAutocomplete system,Path path) throws IOException{
+        RadixNode root=system.root(); // snapshot to serialize
+        int k=root.top.length;
+        List<RadixNode> order=new ArrayList<>(); // BFS order
+        order.add(root);
+        for(int i=0;i<order.size();i++)
+            order.addAll(Arrays.asList(order.get(i).children)); // children stay contiguous
+        int sentenceCount=system.sentenceCount();
+        long charCount=0;
+        for(int id=0;id<sentenceCount;id++)charCount+=system.sentence(id).length();
+        int hashCapacity=2;
+        while(hashCapacity<sentenceCount*2)hashCapacity<<=1; // load factor <= 0.5
+        long ints=HEADER_INTS+(long)order.size()*(6+k)+sentenceCount+(sentenceCount+1)+hashCapacity;
+        long bytes=ints*4+charCount*2;
+        if(bytes>Integer.MAX_VALUE)throw new IOException("Index exceeds a single 2GB mapping: "+bytes+" bytes");
+        Path tmp=path.resolveSibling(path.getFileName()+".tmp"); // write aside, then swap in
+        try{
+            try(FileChannel ch=FileChannel.open(tmp,StandardOpenOption.CREATE,StandardOpenOption.READ,
+                    StandardOpenOption.WRITE,StandardOpenOption.TRUNCATE_EXISTING)){
+                MappedByteBuffer buf=ch.map(FileChannel.MapMode.READ_WRITE,0,bytes);
+                IntBuffer out=buf.asIntBuffer();
+                out.put(MAGIC).put(VERSION).put(k).put(order.size()).put(sentenceCount).put((int)charCount).put(hashCapacity);
+                int next=1; // index of the next unassigned child
+                for(RadixNode node:order){ // node records
+                    out.put(node==root?0:system.sentence(node.labelId).charAt(node.labelStart)); // edge key
+                    out.put(node.labelId).put(node.labelStart).put(node.labelEnd);
+                    out.put(next).put(node.children.length);
+                    next+=node.children.length;
+                    out.put(node.top);
+                }
+                for(int id=0;id<sentenceCount;id++)out.put(system.freq(id)); // frequencies
+                int offset=0;
+                for(int id=0;id<sentenceCount;id++){ // char offsets
+                    out.put(offset);
+                    offset+=system.sentence(id).length();
+                }
+                out.put(offset);
+                int[] slots=new int[hashCapacity]; // sentence lookup table
+                for(int id=0;id<sentenceCount;id++){
+                    int i=SentenceTable.mix(system.sentence(id).hashCode())&(hashCapacity-1);
+                    while(slots[i]!=0)i=(i+1)&(hashCapacity-1);
+                    slots[i]=id+1;
+                }
+                out.put(slots);
+                buf.position((int)(ints*4)); // char blob follows the int sections
+                CharBuffer chars=buf.asCharBuffer();
+                for(int id=0;id<sentenceCount;id++)chars.put(system.sentence(id));
+                buf.force(); // flush to disk
+            }
+            Files.move(tmp,path,StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+        }finally{
+            Files.deleteIfExists(tmp); // no-op after the move, drops a partial file on failure
+        }
+    }
+}
+// ================= MAPPED INDEX =================
+// read-only view over an index file; nothing is copied onto the heap at open
+class MappedAutocompleteIndex{
+    private final int k; // top-k per node
+    private final int recordInts; // ints per node record
+    private final int sentenceCount; // number of sentences
+    private final int hashCapacity; // hash slots
+    private final IntBuffer nodes; // node records
+    private final IntBuffer freq; // sentence frequencies
+    private final IntBuffer offsets; // sentence char offsets
+    private final IntBuffer hash; // sentence lookup
+    private final CharBuffer chars; // sentence text
+    private MappedAutocompleteIndex(ByteBuffer buf) throws IOException{
+        IntBuffer header=buf.asIntBuffer();
+        if(header.get(0)!=AutocompleteIndexWriter.MAGIC)throw new IOException("Not an autocomplete index");
+        if(header.get(1)!=AutocompleteIndexWriter.VERSION)throw new IOException("Unsupported index version "+header.get(1));
+        this.k=header.get(2);
+        int nodeCount=header.get(3);
+        this.sentenceCount=header.get(4);
+        int charCount=header.get(5);
+        this.hashCapacity=header.get(6);
+        this.recordInts=6+k;
+        int pos=AutocompleteIndexWriter.HEADER_INTS; // int cursor over sections
+        this.nodes=ints(buf,pos,nodeCount*recordInts);
+        pos+=nodeCount*recordInts;
+        this.freq=ints(buf,pos,sentenceCount);
+        pos+=sentenceCount;
+        this.offsets=ints(buf,pos,sentenceCount+1);
+        pos+=sentenceCount+1;
+        this.hash=ints(buf,pos,hashCapacity);
+        pos+=hashCapacity;
+        ByteBuffer blob=buf.duplicate();
+        blob.position(pos*4).limit(pos*4+charCount*2);
+        this.chars=blob.slice().asCharBuffer();
+    }
+    private static IntBuffer ints(ByteBuffer buf,int from,int count){ // int-section view
+        ByteBuffer section=buf.duplicate();
+        section.position(from*4).limit((from+count)*4);
+        return section.slice().asIntBuffer();
+    }
+    // Time Complexity: O(1); the mapping stays valid after the channel is closed
+    public static MappedAutocompleteIndex open(Path path) throws IOException{
+        try(FileChannel ch=FileChannel.open(path,StandardOpenOption.READ)){
+            if(ch.size()>Integer.MAX_VALUE)throw new IOException("Index exceeds a single 2GB mapping: "+path);
+            return new MappedAutocompleteIndex(ch.map(FileChannel.MapMode.READ_ONLY,0,ch.size()));
+        }
+    }
+    public int k(){return k;} // top-k per node
+    public int sentenceCount(){return sentenceCount;} // number of sentences
+    public int labelLength(int node){return nodes.get(node*recordInts+3)-nodes.get(node*recordInts+2);} // O(1)
+    public int top(int node,int i){return nodes.get(node*recordInts+6+i);} // O(1), -1 = free slot
+    public int freq(int id){return freq.get(id);} // O(1)
+    public char labelChar(int node,int offset){ // O(1)
+        int base=node*recordInts;
+        return chars.get(offsets.get(nodes.get(base+1))+nodes.get(base+2)+offset);
+    }
+    // Time Complexity: O(log fanout), -1 if no child edge starts with c
+    public int find(int node,char c){
+        int lo=nodes.get(node*recordInts+4);
+        int hi=lo+nodes.get(node*recordInts+5)-1;
+        while(lo<=hi){ // binary search over contiguous children
+            int mid=(lo+hi)>>>1;
+            int key=nodes.get(mid*recordInts);
+            if(key==c)return mid;
+            if(key<c)lo=mid+1;
+            else hi=mid-1;
+        }
+        return -1;
+    }
     // Time Complexity: O(L)
-    private void insert(String sentence,int count){
-        TrieNode curr=root;
-        for(char c:sentence.toCharArray()){ // traverse characters
-            curr.children.putIfAbsent(c,new TrieNode());
-            curr=curr.children.get(c);
-            curr.freqMap.put(sentence,curr.freqMap.getOrDefault(sentence,0)+count);
+    public String sentence(int id){
+        int start=offsets.get(id);
+        char[] text=new char[offsets.get(id+1)-start];
+        chars.get(start,text); // absolute bulk read
+        return new String(text);
+    }
+    // Time Complexity: O(L) expected, -1 if absent
+    public int freqOf(String sentence){
+        int mask=hashCapacity-1;
+        for(int i=SentenceTable.mix(sentence.hashCode())&mask;hash.get(i)!=0;i=(i+1)&mask){ // linear probe
+            int id=hash.get(i)-1;
+            int start=offsets.get(id);
+            if(offsets.get(id+1)-start!=sentence.length())continue; // length differs
+            int j=0;
+            while(j<sentence.length()&&chars.get(start+j)==sentence.charAt(j))j++;
+            if(j==sentence.length())return freq.get(id);
+        }
+        return -1;
+    }
+}
+// ================= INDEX GENERATION =================
+// an immutable snapshot plus the overlay of sentences learned since it was written
+class IndexGeneration{
+    final MappedAutocompleteIndex index; // mapped snapshot
+    final SearchAutocomplete overlay; // learned sentences, absolute frequencies
+    public IndexGeneration(MappedAutocompleteIndex index,SearchAutocomplete overlay){
+        this.index=index; // assign snapshot
+        this.overlay=overlay; // assign overlay
+    }
+}
+// ================= MAPPED SERVICE =================
+// serves from a mapped snapshot; '#' completions go to a small in-memory overlay
+// that mergeOverlay() folds into a fresh snapshot file
+class MappedSearchAutocomplete{
+    private final Path path; // snapshot file
+    private volatile IndexGeneration current; // snapshot + overlay pair
+    private final Object mergeLock=new Object(); // one merge at a time
+    private Set<String> learnedDuringMerge; // sentences learned since the merge froze the overlay, guarded by this
+    private MappedSearchAutocomplete(Path path,MappedAutocompleteIndex index){
+        this.path=path; // assign path
+        this.current=new IndexGeneration(index,emptyOverlay()); // initial generation
+    }
+    // Time Complexity: O(1), only maps the file
+    public static MappedSearchAutocomplete open(Path path) throws IOException{
+        return new MappedSearchAutocomplete(path,MappedAutocompleteIndex.open(path));
+    }
+    private static SearchAutocomplete emptyOverlay(){return new SearchAutocomplete(new String[0],new int[0]);}
+    IndexGeneration generation(){return current;} // current pair
+    public MappedSession newSession(){return new MappedSession(this);} // O(1)
+    public int overlaySize(){return current.overlay.sentenceCount();} // sentences awaiting merge
+    // ================= LEARN SENTENCE =================
+    // overlay frequencies are absolute (snapshot + learned) so MappedSession can merge top-k exactly
+    // Time Complexity: O(L × K)
+    synchronized void learn(String sentence){
+        if(sentence.isEmpty())return; // nothing to index
+        IndexGeneration g=current;
+        int delta=g.overlay.freqOf(sentence)>=0?1:Math.max(g.index.freqOf(sentence),0)+1; // seed with snapshot count
+        g.overlay.insert(sentence,delta);
+        if(learnedDuringMerge!=null)learnedDuringMerge.add(sentence); // carried into the next overlay
+    }
+    // ================= MERGE OVERLAY =================
+    // rebuilds the snapshot file from snapshot + a frozen copy of the overlay without holding the
+    // learn lock; sentences learned meanwhile are carried into the new generation's overlay
+    // Time Complexity: O(total characters × K) off-lock, O(overlay) + O(learned meanwhile × L × K) locked
+    public void mergeOverlay() throws IOException{
+        synchronized(mergeLock){
+            IndexGeneration g;
+            Map<String,Integer> frozen;
+            synchronized(this){ // freeze: copy overlay counts, start recording new learns
+                g=current;
+                SearchAutocomplete overlay=g.overlay;
+                if(overlay.sentenceCount()==0)return; // nothing learned
+                frozen=new LinkedHashMap<>();
+                for(int id=0;id<overlay.sentenceCount();id++)frozen.put(overlay.sentence(id),overlay.freq(id));
+                learnedDuringMerge=new HashSet<>();
+            }
+            MappedAutocompleteIndex index;
+            try{
+                int base=g.index.sentenceCount();
+                List<String> phrases=new ArrayList<>(base+frozen.size());
+                List<Integer> counts=new ArrayList<>(base+frozen.size());
+                for(int id=0;id<base;id++){ // snapshot sentences, overlay count wins
+                    String sentence=g.index.sentence(id);
+                    Integer learned=frozen.get(sentence);
+                    phrases.add(sentence);
+                    counts.add(learned!=null?learned:g.index.freq(id));
+                }
+                for(Map.Entry<String,Integer> e:frozen.entrySet()){ // brand new sentences
+                    if(g.index.freqOf(e.getKey())>=0)continue; // already merged above
+                    phrases.add(e.getKey());
+                    counts.add(e.getValue());
+                }
+                int[] countArray=new int[counts.size()];
+                for(int i=0;i<countArray.length;i++)countArray[i]=counts.get(i);
+                SearchAutocomplete merged=new SearchAutocomplete(phrases.toArray(new String[0]),countArray);
+                AutocompleteIndexWriter.write(merged,path); // atomic replace; old mapping stays readable
+                index=MappedAutocompleteIndex.open(path);
+            }catch(IOException|RuntimeException e){
+                synchronized(this){learnedDuringMerge=null;} // overlay stays as it was
+                throw e;
+            }
+            synchronized(this){ // swap: new snapshot plus whatever was learned while building it
+                SearchAutocomplete next=emptyOverlay();
+                for(String sentence:learnedDuringMerge)
+                    next.insert(sentence,current.overlay.freqOf(sentence)); // absolute counts carry over
+                learnedDuringMerge=null;
+                current=new IndexGeneration(index,next); // publish
+            }
         }
     }
+    public ScheduledFuture<?> scheduleMerge(ScheduledExecutorService executor,long period,TimeUnit unit){
+        return executor.scheduleWithFixedDelay(()->{
+            try{
+                mergeOverlay(); // fold learned sentences
+            }catch(IOException e){
+                System.err.println("Overlay merge failed: "+e.getMessage()); // retry next period
+            }
+        },period,period,unit);
+    }
+}
+// ================= MAPPED SESSION =================
+// walks the mapped snapshot and the overlay side by side and merges their top-k
+class MappedSession{
+    private final MappedSearchAutocomplete service; // shared service
+    private final RadixCursor overlayCursor; // position in the overlay
+    private StringBuilder currentInput; // current typed prefix
+    private IndexGeneration generation; // pinned at the first keystroke
+    private int node; // mapped node holding the last typed char (-1 = no match)
+    private int matched; // chars of the mapped edge consumed so far
+    public MappedSession(MappedSearchAutocomplete service){
+        this.service=service; // assign service
+        this.overlayCursor=new RadixCursor(); // create overlay cursor
+        this.currentInput=new StringBuilder(); // initialize buffer
+    }
+    // Time Complexity: O(log fanout)
+    private void advanceMapped(char ch){
+        if(node<0)return; // already off the trie
+        MappedAutocompleteIndex index=generation.index;
+        if(matched==index.labelLength(node)){ // edge exhausted → take child edge
+            node=index.find(node,ch);
+            matched=1; // first char matched by find
+            return;
+        }
+        if(index.labelChar(node,matched)==ch)matched++; // stay in edge
+        else node=-1; // mismatch inside edge
+    }
     // ================= GET SUGGESTIONS =================
-    // Time Complexity: O(P + N log N)
+    // a sentence missing from both lists ranks below the K-th entry of one of them, so the merge is exact
+    // Time Complexity: O(log fanout + K log K)
     public List<String> getSuggestions(char ch){
         // end of sentence
         if(ch=='#'){
-            insert(currentInput.toString(),1); // save new sentence
-            currentInput=new StringBuilder(); // reset input
+            service.learn(currentInput.toString()); // save new sentence
+            currentInput=new StringBuilder(); // start a new query
             return new ArrayList<>(); // return empty list
         }
         currentInput.append(ch); // append character
-        TrieNode curr=root;
-        // traverse trie using prefix
-        for(char c:currentInput.toString().toCharArray()){
-            if(!curr.children.containsKey(c))
-                return new ArrayList<>(); // no match
-            curr=curr.children.get(c);
-        }
-        // fetch candidate sentences
-        List<Map.Entry<String,Integer>> candidates=new ArrayList<>(curr.freqMap.entrySet());
-        // sort by frequency desc, ASCII asc
-        Collections.sort(candidates,(a,b)->{
-            if(!a.getValue().equals(b.getValue()))
-                return b.getValue()-a.getValue(); // higher freq first
-            return a.getKey().compareTo(b.getKey()); // ASCII order
+        if(currentInput.length()==1){ // first char: pin the latest generation
+            generation=service.generation();
+            node=0;
+            matched=0;
+            overlayCursor.start(generation.overlay.root());
+        }
+        advanceMapped(ch); // move both cursors one position
+        overlayCursor.advance(ch,generation.overlay);
+        MappedAutocompleteIndex index=generation.index;
+        int k=index.k();
+        List<String> names=new ArrayList<>(2*k); // candidate sentences
+        List<Integer> freqs=new ArrayList<>(2*k); // absolute frequencies
+        RadixNode overlayNode=overlayCursor.node();
+        if(overlayNode!=null){
+            for(int id:overlayNode.top){ // overlay already holds absolute counts
+                if(id==-1)break;
+                names.add(generation.overlay.sentence(id));
+                freqs.add(generation.overlay.freq(id));
+            }
+        }
+        if(node>=0){
+            for(int i=0;i<k;i++){ // snapshot candidates not overridden by overlay
+                int id=index.top(node,i);
+                if(id==-1)break;
+                String sentence=index.sentence(id);
+                if(names.contains(sentence))continue;
+                names.add(sentence);
+                freqs.add(index.freq(id));
+            }
+        }
+        Integer[] order=new Integer[names.size()]; // sort candidate positions
+        for(int i=0;i<order.length;i++)order[i]=i;
+        Arrays.sort(order,(a,b)->{
+            if(!freqs.get(a).equals(freqs.get(b)))return freqs.get(b)-freqs.get(a); // higher freq first
+            return names.get(a).compareTo(names.get(b)); // ASCII order
         });
-        // pick top 3
-        List<String> result=new ArrayList<>();
-        for(int i=0;i<Math.min(3,candidates.size());i++)
-            result.add(candidates.get(i).getKey());
+        List<String> result=new ArrayList<>(k);
+        for(int i=0;i<Math.min(k,order.length);i++)result.add(names.get(order[i]));
         return result;
     }
 }
+// ================= LEGACY TRIE (BENCHMARK BASELINE) =================
+// previous layout: HashMap children plus a sentence -> count map copied into every node
+class LegacyTrieNode{
+    Map<Character,LegacyTrieNode> children=new HashMap<>(); // child nodes
+    Map<String,Integer> freqMap=new HashMap<>(); // sentence -> frequency
+    static LegacyTrieNode build(String[] phrases,int[] counts){ // O(total characters)
+        LegacyTrieNode root=new LegacyTrieNode();
+        for(int i=0;i<phrases.length;i++){
+            LegacyTrieNode curr=root;
+            for(char c:phrases[i].toCharArray()){
+                curr=curr.children.computeIfAbsent(c,x->new LegacyTrieNode());
+                curr.freqMap.merge(phrases[i],counts[i],Integer::sum);
+            }
+        }
+        return root;
+    }
+}
+// ================= BENCHMARK =================
+// builds a synthetic corpus and replays typed queries, reporting per-keystroke latency;
+// compare() reports heap footprint and build time of the legacy trie vs the radix trie
+class AutocompleteBenchmark{
+    private static final int VOCABULARY=5_000; // distinct words
+    private static final int QUERIES=20_000; // typed queries replayed
+    private static String[] words(Random random){ // random lowercase words
+        String[] words=new String[VOCABULARY];
+        for(int i=0;i<VOCABULARY;i++){
+            char[] w=new char[3+random.nextInt(6)];
+            for(int j=0;j<w.length;j++)w[j]=(char)('a'+random.nextInt(26));
+            words[i]=new String(w);
+        }
+        return words;
+    }
+    private static String phrase(Random random,String[] words){ // 2-4 words, Zipf-ish skew
+        StringBuilder sb=new StringBuilder();
+        int n=2+random.nextInt(3);
+        for(int i=0;i<n;i++){
+            if(i>0)sb.append(' ');
+            double u=random.nextDouble();
+            sb.append(words[(int)(u*u*u*VOCABULARY)]); // favour low word ids
+        }
+        return sb.toString();
+    }
+    private static long usedHeap(){ // approximate live heap
+        Runtime rt=Runtime.getRuntime();
+        for(int i=0;i<3;i++)System.gc(); // settle collector
+        return rt.totalMemory()-rt.freeMemory();
+    }
+    public static void compare(int phraseCount){
+        Random random=new Random(7); // deterministic corpus
+        String[] words=words(random);
+        String[] phrases=new String[phraseCount];
+        int[] counts=new int[phraseCount];
+        corpus(random,words,phrases,counts);
+        long before=usedHeap(); // corpus already resident
+        long t0=System.nanoTime();
+        LegacyTrieNode legacy=LegacyTrieNode.build(phrases,counts); // old layout
+        long legacyMs=(System.nanoTime()-t0)/1_000_000;
+        long legacyBytes=usedHeap()-before;
+        System.out.printf("legacy trie: build=%,d ms heap=%,d KB%n",legacyMs,legacyBytes/1024);
+        legacy=null; // release before measuring radix trie
+        before=usedHeap();
+        t0=System.nanoTime();
+        SearchAutocomplete radix=new SearchAutocomplete(phrases,counts); // radix layout
+        long radixMs=(System.nanoTime()-t0)/1_000_000;
+        long radixBytes=usedHeap()-before;
+        System.out.printf("radix trie:  build=%,d ms heap=%,d KB%n",radixMs,radixBytes/1024);
+        System.out.println(radix.getSuggestions('a')); // keep radix reachable
+    }
+    private static void corpus(Random random,String[] words,String[] phrases,int[] counts){
+        for(int i=0;i<phrases.length;i++){
+            phrases[i]=phrase(random,words);
+            counts[i]=1+random.nextInt(1000);
+        }
+    }
+    public static void run(int phraseCount){
+        Random random=new Random(7); // deterministic corpus
+        String[] words=words(random);
+        String[] phrases=new String[phraseCount];
+        int[] counts=new int[phraseCount];
+        corpus(random,words,phrases,counts);
+        long t0=System.nanoTime();
+        SearchAutocomplete system=new SearchAutocomplete(phrases,counts); // build
+        System.out.printf("phrases=%,d build=%,d ms%n",phraseCount,(System.nanoTime()-t0)/1_000_000);
+        long[] latencies=new long[QUERIES*40]; // per-keystroke samples
+        int samples=0;
+        for(int q=0;q<QUERIES;q++){ // replay queries
+            String query=phrases[random.nextInt(phraseCount)];
+            for(int i=0;i<query.length()&&samples<latencies.length;i++){
+                long start=System.nanoTime();
+                system.getSuggestions(query.charAt(i));
+                latencies[samples++]=System.nanoTime()-start;
+            }
+            system.getSuggestions('#'); // complete query
+        }
+        report(latencies,samples);
+    }
+    private static void report(long[] latencies,int samples){ // latency percentiles
+        Arrays.sort(latencies,0,samples);
+        System.out.printf("keystrokes=%,d p50=%,d ns p99=%,d ns max=%,d ns%n",
+                samples,latencies[samples/2],latencies[(int)(samples*0.99)],latencies[samples-1]);
+    }
+    // offline build + write, then service startup from the mapped file and keystroke latency
+    public static void snapshot(int phraseCount) throws IOException{
+        Random random=new Random(7); // deterministic corpus
+        String[] words=words(random);
+        String[] phrases=new String[phraseCount];
+        int[] counts=new int[phraseCount];
+        corpus(random,words,phrases,counts);
+        Path file=Files.createTempFile("autocomplete",".idx");
+        try{
+            long t0=System.nanoTime();
+            AutocompleteIndexWriter.write(new SearchAutocomplete(phrases,counts),file); // offline builder
+            System.out.printf("offline build+write=%,d ms size=%,d KB%n",(System.nanoTime()-t0)/1_000_000,Files.size(file)/1024);
+            t0=System.nanoTime();
+            MappedSearchAutocomplete service=MappedSearchAutocomplete.open(file); // service startup
+            MappedSession session=service.newSession();
+            List<String> first=session.getSuggestions(phrases[0].charAt(0)); // first answer
+            System.out.printf("startup to first suggestion=%,d us %s%n",(System.nanoTime()-t0)/1_000,first);
+            session.getSuggestions('#'); // reset session
+            long[] latencies=new long[QUERIES*40]; // per-keystroke samples
+            int samples=0;
+            for(int q=0;q<QUERIES;q++){ // replay queries, learning into the overlay
+                String query=phrases[random.nextInt(phraseCount)];
+                for(int i=0;i<query.length()&&samples<latencies.length;i++){
+                    long start=System.nanoTime();
+                    session.getSuggestions(query.charAt(i));
+                    latencies[samples++]=System.nanoTime()-start;
+                }
+                session.getSuggestions('#'); // complete query
+            }
+            report(latencies,samples);
+            t0=System.nanoTime();
+            int learned=service.overlaySize();
+            service.mergeOverlay(); // fold overlay into a new snapshot
+            System.out.printf("merged %,d overlay sentences in %,d ms%n",learned,(System.nanoTime()-t0)/1_000_000);
+        }finally{
+            Files.deleteIfExists(file);
+        }
+    }
+}
 
 // ================= DRIVER =================
 public class Main{
-    public static void main(String[] args){
-
+    public static void main(String[] args) throws IOException{
+        if(args.length>0&&"bench".equals(args[0])){ // run benchmark
+            AutocompleteBenchmark.run(args.length>1?Integer.parseInt(args[1]):1_000_000);
+            return;
+        }
+        if(args.length>0&&"bench-memory".equals(args[0])){ // compare trie layouts
+            AutocompleteBenchmark.compare(args.length>1?Integer.parseInt(args[1]):200_000);
+            return;
+        }
+        if(args.length>0&&"bench-snapshot".equals(args[0])){ // mapped snapshot startup
+            AutocompleteBenchmark.snapshot(args.length>1?Integer.parseInt(args[1]):1_000_000);
+            return;
+        }
         String[] phrases={"i love you","island","ironman","i love coding"};
         int[] counts={5,3,2,2};
         SearchAutocomplete system=new SearchAutocomplete(phrases,counts);
@@ -74,5 +762,16 @@ public class Main{
         System.out.println(system.getSuggestions(' '));
         System.out.println(system.getSuggestions('l'));
         System.out.println(system.getSuggestions('#')); // save sentence
+        System.out.println("---- MAPPED SNAPSHOT ----");
+        Path file=Files.createTempFile("autocomplete",".idx"); // offline build
+        AutocompleteIndexWriter.write(new SearchAutocomplete(phrases,counts),file);
+        MappedSearchAutocomplete service=MappedSearchAutocomplete.open(file); // map read-only
+        MappedSession session=service.newSession();
+        for(int i=0;i<3;i++) // learn into overlay: island 3 → 6
+            for(char c:"island#".toCharArray())session.getSuggestions(c);
+        System.out.println(session.getSuggestions('i')); // island now ranks first
+        service.mergeOverlay(); // fold overlay into snapshot
+        System.out.println(service.newSession().getSuggestions('i')); // same answer from new snapshot
+        Files.deleteIfExists(file); // clean up
     }
-}
\ No newline at end of file
+}
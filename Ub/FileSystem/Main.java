@@ -1,111 +1,1110 @@
 import java.util.*; // import utility classes
+import java.util.concurrent.*; // benchmark threads
+import java.util.concurrent.atomic.*; // benchmark counters
+import java.util.function.*; // spliterator actions
+import java.util.stream.*; // lazy glob results
+import java.util.concurrent.locks.*; // checkpoint lock
+import java.util.zip.*; // journal checksums
+import java.io.*; // journal streams
+import java.nio.*; // mapped file regions
+import java.nio.channels.*; // journal and snapshot channels
+import java.nio.charset.*; // UTF-8 paths
+import java.nio.file.*; // storage directory (FileSystem below is this file's class)
+// ================= DIRECTORY =================
+// children is a copy-on-write snapshot: readers follow the volatile reference without
+// locking, and adding a child copies the map under this directory's monitor only.
+// Directories are never moved or removed, so parent and the absolute path never change.
+// Files live in a second copy-on-write map; one name is either a directory or a file
 class Directory{
+    private static final TreeMap<String,FileNode> NO_FILES=new TreeMap<>(); // shared, never mutated
     private String name; // directory name
-    Directory parent; // parent directory reference
-    TreeMap<String,Directory> children; // children stored in lexicographic order
+    Directory parent; // parent directory reference, set before publication
+    volatile TreeMap<String,Directory> children; // children stored in lexicographic order, never mutated once published
+    volatile TreeMap<String,FileNode> files=NO_FILES; // files by name, copy-on-write like children
+    private volatile String path; // absolute path, built on first pwd
     public Directory(String name){this.name=name;this.children=new TreeMap<>();} // constructor
     public String getName(){return name;} // return directory name
-    public Directory getChild(String name){return children.get(name);} // fetch child by name
-    public void addChild(Directory dir){dir.parent=this;children.put(dir.getName(),dir);} // add child directory
+    public Directory getChild(String name){return children.get(name);} // fetch child by name, lock-free
+    private synchronized void addChild(Directory dir){ // add child directory, O(children)
+        dir.parent=this;
+        TreeMap<String,Directory> next=new TreeMap<>(children); // copy
+        next.put(dir.getName(),dir);
+        children=next; // publish
+    }
+    // only FileSystem creates directories: name must be interned in its ComponentTable, which
+    // navigation consults before looking for a child. beforeCreate runs under this monitor
+    // just before a new child is published (write-ahead log)
+    // Time Complexity: O(log children) when present, O(children) to create; null when a file has the name
+    Directory getOrCreateChild(String name,Runnable beforeCreate){
+        Directory child=children.get(name); // lock-free fast path
+        if(child!=null)return child;
+        synchronized(this){ // recheck: another session may have created it
+            child=children.get(name);
+            if(child!=null||files.containsKey(name))return child; // exists, or taken by a file
+            if(beforeCreate!=null)beforeCreate.run();
+            addChild(child=new Directory(name));
+            return child;
+        }
+    }
+    public FileNode getFile(String name){return files.get(name);} // lock-free
+    FileNode getOrCreateFile(String name){return getOrCreateFile(name,null);}
+    // beforePublish runs under this monitor on a new file no other session can see yet (write-ahead
+    // log, first content); if it throws, nothing is published
+    // Time Complexity: O(log files) when present, O(files) to create; null when a directory has the name
+    FileNode getOrCreateFile(String name,Consumer<FileNode> beforePublish){
+        FileNode file=files.get(name);
+        if(file!=null)return file;
+        synchronized(this){
+            file=files.get(name);
+            if(file!=null||children.containsKey(name))return file; // exists, or taken by a directory
+            file=new FileNode(name,this);
+            if(beforePublish!=null)beforePublish.accept(file);
+            TreeMap<String,FileNode> next=new TreeMap<>(files); // copy
+            next.put(name,file);
+            files=next; // publish
+            return file;
+        }
+    }
+    String childPath(String name){ // absolute path of a child called name
+        String p=getPath();
+        return p.length()==1?"/"+name:p+"/"+name;
+    }
+    public String getPath(){ // O(1) after the first call
+        String p=path;
+        if(p!=null)return p;
+        if(parent==this)p="/"; // root
+        else{
+            String parentPath=parent.getPath();
+            p=parentPath.length()==1?"/"+name:parentPath+"/"+name;
+        }
+        path=p; // benign race: every thread builds the same string
+        return p;
+    }
+}
+// ================= FILE NODE =================
+// byte content: optionally a run of read-only regions of a memory-mapped snapshot (large
+// files after recovery or a checkpoint, never copied onto the heap), followed by heap
+// chunks of CHUNK bytes where only the last may be shorter. Reads and writes lock this
+// file only; writers queue on writers across journal I/O and take the monitor just for the
+// in-memory change, so a read never waits on the disk
+class FileNode{
+    static final int CHUNK=64*1024; // heap chunk size
+    static final int REGION=1<<30; // bytes per mapped region
+    private static final ByteBuffer[] NO_REGIONS=new ByteBuffer[0];
+    private final String name; // file name
+    final Directory parent; // containing directory
+    final Object writers=new Object(); // orders journal record and change of each write
+    private ByteBuffer[] mapped=NO_REGIONS; // snapshot regions holding the first mappedLength bytes
+    private long mappedLength; // bytes served from the mapping
+    private byte[][] chunks=new byte[1][]; // heap bytes after the mapping
+    private int chunkCount; // chunks in use
+    private long length; // total bytes
+    FileNode(String name,Directory parent){this.name=name;this.parent=parent;}
+    public String getName(){return name;}
+    public String getPath(){return parent.childPath(name);}
+    public synchronized long size(){return length;}
+    synchronized boolean isMapped(){return mappedLength>0;}
+    synchronized void write(byte[] data){ // replace content, O(data)
+        mapped=NO_REGIONS;mappedLength=0;
+        chunks=new byte[1][];chunkCount=0;length=0;
+        append(data);
+    }
+    // Time Complexity: O(data), amortized; the last chunk grows by doubling up to CHUNK
+    synchronized void append(byte[] data){
+        long heap=length-mappedLength; // heap bytes before this append
+        for(int off=0;off<data.length;){
+            int index=(int)(heap/CHUNK),at=(int)(heap%CHUNK);
+            if(index==chunkCount){ // start a chunk
+                if(chunkCount==chunks.length)chunks=Arrays.copyOf(chunks,chunkCount*2);
+                chunks[chunkCount++]=new byte[Math.min(CHUNK,Math.max(64,data.length-off))];
+            }
+            int n=Math.min(data.length-off,CHUNK-at);
+            if(at+n>chunks[index].length)chunks[index]=Arrays.copyOf(chunks[index],Math.min(CHUNK,Math.max(at+n,2*chunks[index].length)));
+            System.arraycopy(data,off,chunks[index],at,n);
+            off+=n;heap+=n;
+        }
+        length+=data.length;
+    }
+    static void checkRead(long position,byte[] dst,int off,int len){ // same contract as InputStream.read
+        if(position<0)throw new IllegalArgumentException("negative position: "+position);
+        Objects.checkFromIndexSize(off,len,dst.length); // IndexOutOfBoundsException, NullPointerException for dst
+    }
+    // copies up to len bytes at position into dst; -1 at end of file
+    // Time Complexity: O(len)
+    synchronized int read(long position,byte[] dst,int off,int len){
+        checkRead(position,dst,off,len);
+        if(len==0)return 0; // nothing asked, even at end of file
+        if(position>=length)return -1; // end of file
+        int n=(int)Math.min(len,length-position),done=0;
+        while(done<n&&position+done<mappedLength){ // mapped regions: absolute gets, no copy of the rest
+            long at=position+done;
+            int m=(int)Math.min(n-done,Math.min(REGION-at%REGION,mappedLength-at));
+            mapped[(int)(at/REGION)].get((int)(at%REGION),dst,off+done,m);
+            done+=m;
+        }
+        while(done<n){ // heap chunks
+            long at=position+done-mappedLength;
+            int m=(int)Math.min(n-done,CHUNK-at%CHUNK);
+            System.arraycopy(chunks[(int)(at/CHUNK)],(int)(at%CHUNK),dst,off+done,m);
+            done+=m;
+        }
+        return n;
+    }
+    synchronized byte[] readAll(){ // whole file onto the heap
+        if(length>Integer.MAX_VALUE-8)throw new IllegalStateException("file too large for one array: "+getPath());
+        byte[] data=new byte[(int)length];
+        read(0,data,0,data.length);
+        return data;
+    }
+    synchronized void map(ByteBuffer[] regions,long regionsLength){ // content = snapshot regions
+        mapped=regions;mappedLength=regionsLength;
+        chunks=new byte[1][];chunkCount=0;length=regionsLength;
+    }
 }
-class FileSystem{
-    private Directory root; // root directory
-    private Directory current; // current working directory
-    private final Object lock=new Object(); // lock for thread safety
+// ================= COMPONENT TABLE =================
+// interned directory names in an open-addressed table probed straight from a range of
+// the path string (String.hashCode over the range, regionMatches), so resolving an
+// existing path allocates nothing. Names enter only when a directory is created; lookups
+// are lock-free, and every insert republishes the volatile array so a name is visible
+// before the directory that uses it
+class ComponentTable{
+    private volatile String[] names=new String[64]; // power of two, load ≤ 1/2
+    private int size; // names stored, guarded by this
+    private static int hash(String path,int from,int to){ // same as substring(from, to).hashCode()
+        int h=0;
+        for(int i=from;i<to;i++)h=31*h+path.charAt(i);
+        return h;
+    }
+    private static int slot(int h,int mask){return (h^h>>>16)&mask;} // spread
+    // Time Complexity: O(length) expected, no allocation
+    String find(String path,int from,int to){
+        String[] table=names; // one snapshot
+        int len=to-from,mask=table.length-1;
+        for(int i=slot(hash(path,from,to),mask);table[i]!=null;i=(i+1)&mask)
+            if(table[i].length()==len&&path.regionMatches(from,table[i],0,len))return table[i];
+        return null; // never created → no such child anywhere
+    }
+    synchronized String intern(String path,int from,int to){ // find or add
+        String name=find(path,from,to);
+        if(name!=null)return name;
+        String[] table=names;
+        if(++size*2>table.length){ // grow, reusing cached hashes
+            String[] old=table;
+            table=new String[old.length*2];
+            for(String n:old)if(n!=null)insert(table,n);
+        }
+        name=path.substring(from,to);
+        insert(table,name);
+        names=table; // publish
+        return name;
+    }
+    private static void insert(String[] table,String name){
+        int mask=table.length-1,i=slot(name.hashCode(),mask);
+        while(table[i]!=null)i=(i+1)&mask;
+        table[i]=name;
+    }
+}
+// ================= PATH CACHE =================
+// bounded direct-mapped cache: absolute path string → directory, one immutable entry per
+// slot, read and overwritten without locks (a racing put just keeps one of the entries).
+// Only successful, wildcard-free resolutions are stored; directories are never removed or
+// renamed and a new directory cannot change where an existing path leads, so entries stay
+// exact. A path with a "*" depends on how many siblings exist, so it always walks the tree
+class PathCache{
+    private static final class Entry{
+        final String path;final Directory dir; // final fields: safe to publish racily
+        Entry(String path,Directory dir){this.path=path;this.dir=dir;}
+    }
+    private final Entry[] slots; // power of two
+    PathCache(int capacity){this.slots=new Entry[Integer.highestOneBit(Math.max(1,capacity-1))<<1];}
+    private int slot(String path){int h=path.hashCode();return (h^h>>>16)&(slots.length-1);}
+    Directory get(String path){ // O(1) for a hit on the same String (hash cached, equals by identity)
+        Entry e=slots[slot(path)];
+        return e!=null&&e.path.equals(path)?e.dir:null;
+    }
+    void put(String path,Directory dir){slots[slot(path)]=new Entry(path,dir);}
+}
+// ================= GLOB PATTERN =================
+// compiled once: one segment per path component. "**" matches zero or more directories,
+// "." and ".." navigate, a component without metacharacters is a literal child lookup,
+// and anything else is a wildcard over one name: "*" any run, "?" one char, "[a-z]",
+// "[!a]" or "[^a]" one char in/not in the class, "\x" a literal x
+class GlobPattern{
+    static final int LITERAL=0,WILDCARD=1,RECURSIVE=2,CURRENT=3,PARENT=4; // segment kinds
+    private static final int OP_CHAR=0,OP_ANY=1,OP_STAR=2,OP_CLASS=3; // CHAR c | ANY | STAR | CLASS negate count (lo hi)×count
+    final boolean absolute; // starts at the root
+    final boolean distinct; // every match is reached by one route only
+    private final Segment[] segments; // one per component
+    // ================= SEGMENT =================
+    static final class Segment{
+        final int kind; // LITERAL, WILDCARD, RECURSIVE, CURRENT or PARENT
+        final String prefix; // literal name, or the literal chars a wildcard starts with
+        private final int[] program; // wildcard matcher
+        private Segment(int kind,String prefix,int[] program){this.kind=kind;this.prefix=prefix;this.program=program;}
+        static Segment wildcard(String component){ // one name, "**" is just "*" here
+            StringBuilder prefix=new StringBuilder();
+            int[] program=compile(component,prefix);
+            return new Segment(WILDCARD,prefix.toString(),program);
+        }
+        // two pointers with backtracking to the last star: O(name × program) worst case, linear in practice
+        boolean matches(String name){
+            if(kind==LITERAL)return prefix.equals(name);
+            int pc=0,i=0,starPc=-1,starI=0;
+            while(i<name.length()){
+                if(pc<program.length&&program[pc]==OP_STAR){starPc=++pc;starI=i;continue;} // star matches empty first
+                int next=pc<program.length?step(pc,name.charAt(i)):-1;
+                if(next>=0){pc=next;i++;continue;}
+                if(starPc<0)return false; // mismatch, no star to widen
+                pc=starPc;i=++starI; // star absorbs one more char
+            }
+            while(pc<program.length&&program[pc]==OP_STAR)pc++; // trailing stars match empty
+            return pc==program.length;
+        }
+        private int step(int pc,char c){ // next pc after matching c, -1 on mismatch
+            switch(program[pc]){
+                case OP_CHAR:return program[pc+1]==c?pc+2:-1;
+                case OP_ANY:return pc+1;
+                case OP_CLASS:{
+                    int count=program[pc+2];
+                    boolean in=false;
+                    for(int k=0;k<count&&!in;k++)in=c>=program[pc+3+2*k]&&c<=program[pc+4+2*k];
+                    return in!=(program[pc+1]==1)?pc+3+2*count:-1;
+                }
+                default:return -1;
+            }
+        }
+        // children whose names can match: a literal prefix seeks into the TreeMap order
+        NavigableMap<String,Directory> candidates(TreeMap<String,Directory> children){
+            if(prefix.isEmpty())return children;
+            int last=prefix.length()-1;
+            while(last>=0&&prefix.charAt(last)==Character.MAX_VALUE)last--;
+            if(last<0)return children.tailMap(prefix,true); // no finite upper bound
+            String upper=prefix.substring(0,last)+(char)(prefix.charAt(last)+1); // first string past the prefix range
+            return children.subMap(prefix,true,upper,false);
+        }
+    }
+    private GlobPattern(boolean absolute,Segment[] segments,boolean distinct){
+        this.absolute=absolute;this.segments=segments;this.distinct=distinct;
+    }
+    // Time Complexity: O(pattern length)
+    public static GlobPattern compile(String pattern){
+        List<Segment> segments=new ArrayList<>();
+        int recursive=0;
+        boolean reentrant=false; // ".." after a wildcard can revisit a directory
+        for(int i=0,j;i<pattern.length();i=j){
+            while(i<pattern.length()&&pattern.charAt(i)=='/')i++; // ignore empty segments
+            for(j=i;j<pattern.length()&&pattern.charAt(j)!='/';j++); // end of component
+            if(i==j)break;
+            String component=pattern.substring(i,j);
+            Segment segment;
+            if(component.equals("**")){
+                if(!segments.isEmpty()&&segments.get(segments.size()-1).kind==RECURSIVE)continue; // "**/**" is "**"
+                segment=new Segment(RECURSIVE,"",null);
+                recursive++;
+            }
+            else if(component.equals("."))segment=new Segment(CURRENT,"",null);
+            else if(component.equals("..")){
+                segment=new Segment(PARENT,"",null);
+                reentrant|=recursive>0||segments.stream().anyMatch(x->x.kind==WILDCARD);
+            }
+            else if(!hasMeta(component,0,component.length())&&component.indexOf('\\')<0)segment=new Segment(LITERAL,component,null);
+            else{
+                segment=Segment.wildcard(component);
+                if(segment.program.length==2*segment.prefix.length())segment=new Segment(LITERAL,segment.prefix,null); // only escapes
+            }
+            segments.add(segment);
+        }
+        return new GlobPattern(pattern.startsWith("/"),segments.toArray(new Segment[0]),recursive<=1&&!reentrant);
+    }
+    static boolean hasMeta(String path,int from,int to){ // glob metacharacters in [from, to)
+        for(int i=from;i<to;i++){
+            char c=path.charAt(i);
+            if(c=='*'||c=='?'||c=='[')return true;
+        }
+        return false;
+    }
+    private static int[] compile(String component,StringBuilder prefix){ // one wildcard component → program
+        int[] program=new int[4*component.length()+4];
+        int n=0;
+        boolean literalRun=true,star=false; // still inside the leading literal chars; last op was a star
+        for(int i=0;i<component.length();i++){
+            char c=component.charAt(i);
+            boolean wasStar=star;
+            star=c=='*';
+            if(c=='*'){
+                if(!wasStar)program[n++]=OP_STAR; // collapse "**"
+                literalRun=false;
+            }
+            else if(c=='?'){program[n++]=OP_ANY;literalRun=false;}
+            else if(c=='['&&component.indexOf(']',i+2)>0){ // class, "]" right after "[" or "[!" is literal
+                int k=i+1;
+                boolean negate=k<component.length()&&(component.charAt(k)=='!'||component.charAt(k)=='^');
+                if(negate)k++;
+                int end=component.indexOf(']',k+1);
+                if(end<0){program[n++]=OP_CHAR;program[n++]=c;if(literalRun)prefix.append(c);continue;} // "[!]" with nothing after
+                int countAt=n+2,count=0;
+                if(n+3+2*(end-k)>program.length)program=Arrays.copyOf(program,n+3+2*(end-k)+component.length()*4);
+                program[n]=OP_CLASS;program[n+1]=negate?1:0;
+                n+=3;
+                for(int m=k;m<end;m++){
+                    char lo=component.charAt(m),hi=lo;
+                    if(m+2<end&&component.charAt(m+1)=='-'){hi=component.charAt(m+2);m+=2;} // range
+                    program[n++]=lo;program[n++]=hi;
+                    count++;
+                }
+                program[countAt]=count;
+                i=end;
+                literalRun=false;
+            }
+            else{
+                if(c=='\\'&&i+1<component.length())c=component.charAt(++i); // escaped literal
+                program[n++]=OP_CHAR;program[n++]=c;
+                if(literalRun)prefix.append(c);
+            }
+        }
+        return Arrays.copyOf(program,n);
+    }
+    int length(){return segments.length;}
+    Segment segment(int i){return segments[i];}
+}
+// ================= GLOB SPLITERATOR =================
+// depth-first walk over (directory, next segment) states on an explicit stack, producing
+// matches only as the stream pulls them. Children are pushed in reverse so siblings come
+// out in name order (a deterministic depth-first order; with "**" last it is path order).
+// trySplit hands the top half of the stack (the earlier matches) to a
+// new spliterator, so a parallel stream spreads large subtrees over the fork-join pool.
+// Child maps are read from their current snapshots: mkdir racing a walk may or may not
+// be seen, but the walk never sees a torn directory
+class GlobSpliterator implements Spliterator<String>{
+    private static final class State{
+        final Directory dir;final int segment; // next segment to match below dir
+        State(Directory dir,int segment){this.dir=dir;this.segment=segment;}
+    }
+    private final GlobPattern pattern; // compiled query
+    private final ArrayDeque<State> pending; // head pops first
+    GlobSpliterator(GlobPattern pattern,Directory start){
+        this(pattern,new ArrayDeque<>());
+        pending.push(new State(start,0));
+    }
+    private GlobSpliterator(GlobPattern pattern,ArrayDeque<State> pending){this.pattern=pattern;this.pending=pending;}
+    // Time Complexity: O(states expanded until the next match)
+    public boolean tryAdvance(Consumer<? super String> action){
+        while(!pending.isEmpty()){
+            State state=pending.pop();
+            if(state.segment==pattern.length()){action.accept(state.dir.getPath());return true;} // match
+            expand(state);
+        }
+        return false; // exhausted
+    }
+    private void expand(State state){ // push successor states in reverse order
+        Directory dir=state.dir;
+        int next=state.segment+1;
+        GlobPattern.Segment segment=pattern.segment(state.segment);
+        switch(segment.kind){
+            case GlobPattern.CURRENT:pending.push(new State(dir,next));break;
+            case GlobPattern.PARENT:pending.push(new State(dir.parent,next));break;
+            case GlobPattern.LITERAL:{
+                Directory child=dir.getChild(segment.prefix); // direct lookup
+                if(child!=null)pending.push(new State(child,next));
+                break;
+            }
+            case GlobPattern.WILDCARD:
+                for(Directory child:segment.candidates(dir.children).descendingMap().values())
+                    if(segment.matches(child.getName()))pending.push(new State(child,next));
+                break;
+            default: // RECURSIVE: descend keeping "**", or let it match nothing here
+                for(Directory child:dir.children.descendingMap().values())pending.push(new State(child,state.segment));
+                pending.push(new State(dir,next));
+        }
+    }
+    public Spliterator<String> trySplit(){
+        for(int steps=0;pending.size()==1&&steps<64;steps++){ // open up a lone subtree
+            if(pending.peek().segment==pattern.length())return null; // a match must be emitted by its owner
+            expand(pending.pop());
+        }
+        if(pending.size()<2)return null;
+        ArrayDeque<State> prefix=new ArrayDeque<>(); // encounter order: the head comes first
+        for(int k=pending.size()/2;k>0;k--)prefix.addLast(pending.pop());
+        return new GlobSpliterator(pattern,prefix);
+    }
+    public long estimateSize(){return Long.MAX_VALUE;} // unknown until walked
+    public int characteristics(){return ORDERED|NONNULL|(pattern.distinct?DISTINCT:0);}
+}
+// ================= JOURNAL =================
+// write-ahead log and compacted snapshots in one storage directory:
+//   snapshot-N.bin  every directory and file as of the moment journal-N.log was started
+//   journal-N.log   mutations since, each record [body length][crc32][type, path, data]
+// A mutation is appended before it is applied in memory, so the journal survives a process
+// crash (sync() also forces it to disk). Mutations share the checkpoint lock; once the
+// journal passes its limit a checkpoint takes it exclusively, writes snapshot-(N+1) to a
+// temp file, fsyncs and renames it, starts journal-(N+1) and deletes generation N.
+// Recovery loads the newest snapshot and replays its journal up to the first torn or
+// corrupt record. Files of at least MAP_THRESHOLD bytes are served from read-only
+// mappings of the snapshot rather than loaded onto the heap
+class Journal implements Closeable{
+    static final byte MKDIR=1,WRITE=2,APPEND=3; // record types
+    private static final byte END=0,DIR_ENTRY=1,FILE_ENTRY=2; // snapshot entries
+    private static final long MAGIC=0x46534e4150310000L; // "FSNAP1"
+    static final long MAP_THRESHOLD=1<<20; // smaller files are loaded onto the heap
+    final ReentrantReadWriteLock checkpointLock=new ReentrantReadWriteLock(); // mutations share, checkpoints exclude
+    private final Path directory; // storage directory
+    private final long limit; // journal bytes that trigger a checkpoint
+    private final AtomicBoolean checkpointing=new AtomicBoolean(); // one checkpoint at a time
+    private long generation; // N of the live journal
+    private FileChannel channel; // journal-N.log, positioned at its end
+    private volatile long size; // bytes in the live journal
+    private volatile IOException failed; // a torn record could not be cut off: no further mutations
+    private volatile IOException checkpointFailure; // last automatic checkpoint failure, reported by sync()/close()
+    private Journal(Path directory,long limit,long generation,FileChannel channel,long size){
+        this.directory=directory;this.limit=limit;this.generation=generation;this.channel=channel;this.size=size;
+    }
+    private static Path snapshotPath(Path directory,long generation){return directory.resolve("snapshot-"+generation+".bin");}
+    private static Path journalPath(Path directory,long generation){return directory.resolve("journal-"+generation+".log");}
+    // ================= RECOVERY =================
+    // Time Complexity: O(snapshot entries + journal bytes); mapped file bytes are not read
+    static Journal open(Path directory,long limit,FileSystem fs) throws IOException{
+        Files.createDirectories(directory);
+        long generation=0; // no snapshot yet: empty tree + journal-0
+        try(DirectoryStream<Path> snapshots=Files.newDirectoryStream(directory,"snapshot-*.bin")){
+            for(Path p:snapshots){
+                String name=p.getFileName().toString();
+                generation=Math.max(generation,Long.parseLong(name.substring(9,name.length()-4)));
+            }
+        }
+        if(generation>0)loadSnapshot(fs,snapshotPath(directory,generation));
+        Path log=journalPath(directory,generation);
+        long valid=Files.exists(log)?replay(fs,log):0;
+        FileChannel channel=FileChannel.open(log,StandardOpenOption.CREATE,StandardOpenOption.WRITE);
+        channel.truncate(valid); // drop a torn tail
+        channel.position(valid);
+        try(DirectoryStream<Path> stale=Files.newDirectoryStream(directory,"{snapshot,journal}-*")){ // interrupted checkpoints
+            for(Path p:stale){
+                String name=p.getFileName().toString();
+                if(!name.equals(snapshotPath(directory,generation).getFileName().toString())&&!name.equals(log.getFileName().toString()))
+                    Files.deleteIfExists(p);
+            }
+        }
+        forceDirectory(directory); // a new journal-N is durable before sync() vouches for it
+        return new Journal(directory,limit,generation,channel,valid);
+    }
+    private static void loadSnapshot(FileSystem fs,Path path) throws IOException{
+        try(FileChannel channel=FileChannel.open(path,StandardOpenOption.READ);
+            DataInputStream in=new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel),1<<16))){
+            if(in.readLong()!=MAGIC)throw new IOException("not a snapshot: "+path);
+            in.readLong(); // generation, already known from the name
+            long position=16;
+            for(byte type=in.readByte();type!=END;type=in.readByte()){ // preorder: parents come first
+                byte[] name=new byte[in.readInt()];
+                in.readFully(name);
+                String entry=new String(name,StandardCharsets.UTF_8);
+                position+=1+4+name.length;
+                if(type==DIR_ENTRY){fs.replay(MKDIR,entry,null);continue;}
+                long length=in.readLong();
+                position+=8;
+                FileNode file=fs.replayFile(entry);
+                if(length>=MAP_THRESHOLD){ // map in place, skip the bytes
+                    file.map(map(channel,position,length),length);
+                    in.skipNBytes(length);
+                }else{
+                    byte[] data=new byte[(int)length];
+                    in.readFully(data);
+                    file.write(data);
+                }
+                position+=length;
+            }
+        }
+    }
+    private static long replay(FileSystem fs,Path log) throws IOException{ // bytes of intact records
+        long valid=0,fileSize=Files.size(log);
+        try(DataInputStream in=new DataInputStream(new BufferedInputStream(Files.newInputStream(log),1<<16))){
+            while(fileSize-valid>=8){
+                int length=in.readInt(),crc=in.readInt();
+                if(length<5||length>fileSize-valid-8)break; // torn or corrupt header
+                byte[] body=new byte[length];
+                in.readFully(body);
+                CRC32 check=new CRC32();
+                check.update(body);
+                if((int)check.getValue()!=crc)break; // torn or corrupt body
+                int pathLength=ByteBuffer.wrap(body,1,4).getInt();
+                if(pathLength<0||pathLength>length-5)break;
+                fs.replay(body[0],new String(body,5,pathLength,StandardCharsets.UTF_8),Arrays.copyOfRange(body,5+pathLength,length));
+                valid+=8+length;
+            }
+        }
+        return valid;
+    }
+    // ================= APPEND =================
+    // caller holds the checkpoint read lock and the lock that orders this mutation. A failed
+    // write is cut off again so later records do not land behind a torn one (recovery stops
+    // at the first bad record); if that fails too the journal refuses every later mutation
+    // Time Complexity: O(path + data)
+    synchronized void append(byte type,String path,byte[] data){
+        if(failed!=null)throw new UncheckedIOException("journal "+directory+" failed",failed);
+        byte[] name=path.getBytes(StandardCharsets.UTF_8);
+        int dataLength=data==null?0:data.length;
+        ByteBuffer header=ByteBuffer.allocate(8+1+4+name.length);
+        header.putInt(1+4+name.length+dataLength).putInt(0).put(type).putInt(name.length).put(name);
+        CRC32 crc=new CRC32();
+        crc.update(header.array(),8,header.capacity()-8);
+        if(data!=null)crc.update(data);
+        header.putInt(4,(int)crc.getValue()).flip();
+        ByteBuffer[] record={header,ByteBuffer.wrap(data==null?new byte[0]:data)}; // gathering write, data is not copied
+        long start=size; // end of the last intact record
+        try{
+            while(record[1].hasRemaining()||record[0].hasRemaining())channel.write(record);
+        }catch(IOException e){
+            try{
+                channel.truncate(start); // drop the partial record
+                channel.position(start);
+            }catch(IOException cut){
+                failed=cut;
+                e.addSuppressed(cut);
+            }
+            throw new UncheckedIOException("journal "+directory,e); // the mutation is not applied
+        }
+        size+=header.capacity()+dataLength;
+    }
+    // after a mutation released the read lock. The mutation is already durable in the journal,
+    // so a failure does not fail it: it is kept for sync()/close() and retried next time
+    void checkpointIfDue(FileSystem fs){
+        if(size<limit||!checkpointing.compareAndSet(false,true))return;
+        try{
+            if(size>=limit)checkpoint(fs);
+        }catch(IOException e){
+            checkpointFailure=e;
+        }catch(UncheckedIOException e){
+            checkpointFailure=e.getCause();
+        }finally{
+            checkpointing.set(false);
+        }
+    }
+    // ================= CHECKPOINT =================
+    // Time Complexity: O(directories + file bytes); blocks mutations, not reads
+    void checkpoint(FileSystem fs) throws IOException{
+        checkpointLock.writeLock().lock();
+        try{
+            long next=generation+1;
+            Path temp=directory.resolve("snapshot-"+next+".tmp"),target=snapshotPath(directory,next);
+            List<FileNode> large=new ArrayList<>(); // remapped onto the new snapshot
+            List<Long> offsets=new ArrayList<>();
+            try(FileChannel out=FileChannel.open(temp,StandardOpenOption.CREATE,StandardOpenOption.TRUNCATE_EXISTING,StandardOpenOption.WRITE)){
+                DataOutputStream data=new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(out),1<<16));
+                data.writeLong(MAGIC);
+                data.writeLong(next);
+                long position=16;
+                byte[] buffer=new byte[FileNode.CHUNK];
+                ArrayDeque<Directory> stack=new ArrayDeque<>();
+                stack.push(fs.root());
+                while(!stack.isEmpty()){ // preorder
+                    Directory dir=stack.pop();
+                    if(dir.parent!=dir)position+=writeEntry(data,DIR_ENTRY,dir.getPath());
+                    for(FileNode file:dir.files.values()){
+                        position+=writeEntry(data,FILE_ENTRY,file.getPath());
+                        long length=file.size();
+                        data.writeLong(length);
+                        position+=8;
+                        if(length>=MAP_THRESHOLD){large.add(file);offsets.add(position);}
+                        for(long at=0;at<length;){
+                            int n=file.read(at,buffer,0,buffer.length);
+                            data.write(buffer,0,n);
+                            at+=n;
+                        }
+                        position+=length;
+                    }
+                    for(Directory child:dir.children.descendingMap().values())stack.push(child);
+                }
+                data.writeByte(END);
+                data.flush();
+                out.force(true);
+            }
+            // journal-(N+1) exists before the snapshot that makes it live: if opening it fails,
+            // mutations stay on journal-N under snapshot-N; recovery drops an unused journal-(N+1)
+            FileChannel log=FileChannel.open(journalPath(directory,next),StandardOpenOption.CREATE,StandardOpenOption.TRUNCATE_EXISTING,StandardOpenOption.WRITE);
+            try{
+                Files.move(temp,target,StandardCopyOption.ATOMIC_MOVE); // snapshot-(N+1) is now authoritative
+            }catch(IOException e){
+                log.close();
+                throw e;
+            }
+            channel.close();
+            channel=log;
+            size=0;
+            failed=null; // a torn tail of journal-N no longer matters
+            forceDirectory(directory); // the rename and journal-(N+1) survive a crash
+            Files.deleteIfExists(journalPath(directory,generation));
+            Files.deleteIfExists(snapshotPath(directory,generation)); // live mappings of it stay valid
+            generation=next;
+            checkpointFailure=null; // an earlier failure left the journal intact; nothing is lost
+            try(FileChannel in=FileChannel.open(target,StandardOpenOption.READ)){ // large files leave the heap
+                for(int f=0;f<large.size();f++){
+                    long length=large.get(f).size();
+                    large.get(f).map(map(in,offsets.get(f),length),length);
+                }
+            }
+        }finally{
+            checkpointLock.writeLock().unlock();
+        }
+    }
+    private static void forceDirectory(Path directory) throws IOException{ // directory entries to disk
+        try(FileChannel dir=FileChannel.open(directory,StandardOpenOption.READ)){
+            dir.force(true);
+        }
+    }
+    private static ByteBuffer[] map(FileChannel channel,long offset,long length) throws IOException{ // read-only, REGION bytes each
+        ByteBuffer[] regions=new ByteBuffer[(int)((length+FileNode.REGION-1)/FileNode.REGION)];
+        for(int r=0;r<regions.length;r++){
+            long at=(long)r*FileNode.REGION;
+            regions[r]=channel.map(FileChannel.MapMode.READ_ONLY,offset+at,Math.min(FileNode.REGION,length-at));
+        }
+        return regions; // mappings outlive the channel
+    }
+    private static int writeEntry(DataOutputStream data,byte type,String path) throws IOException{ // bytes written
+        byte[] name=path.getBytes(StandardCharsets.UTF_8);
+        data.writeByte(type);
+        data.writeInt(name.length);
+        data.write(name);
+        return 1+4+name.length;
+    }
+    void sync() throws IOException{ // journal to disk
+        checkpointLock.readLock().lock(); // the channel is not swapped meanwhile
+        try{
+            channel.force(false);
+        }finally{
+            checkpointLock.readLock().unlock();
+        }
+        reportCheckpointFailure();
+    }
+    public void close() throws IOException{
+        checkpointLock.writeLock().lock();
+        try{
+            channel.force(false);
+            channel.close();
+        }finally{
+            checkpointLock.writeLock().unlock();
+        }
+        reportCheckpointFailure();
+    }
+    private void reportCheckpointFailure() throws IOException{ // once per failure
+        IOException failure=checkpointFailure;
+        if(failure==null)return;
+        checkpointFailure=null;
+        throw new IOException("checkpoint "+directory+" failed; the journal still holds every mutation",failure);
+    }
+}
+// ================= SESSION =================
+// one client's working directory. Sessions share the tree; each one is meant for one
+// thread at a time, like a shell
+class Session{
+    private final FileSystem fs; // shared tree
+    private volatile Directory current; // current working directory
+    Session(FileSystem fs,Directory start){this.fs=fs;this.current=start;}
+    public boolean mkdir(String path){ // O(1) for a cached absolute path, else O(depth)
+        if(path==null||path.isEmpty())return false; // invalid path
+        return fs.mkdir(current,path); // navigate and create
+    }
+    public boolean cd(String path){ // O(1) for a cached absolute path, else O(depth)
+        if(path==null||path.isEmpty())return false; // invalid path
+        Directory result=fs.resolve(current,path,false); // navigate without create
+        if(result==null)return false; // if invalid path
+        current=result; // update current directory
+        return true; // success
+    }
+    public String pwd(){return current.getPath();} // O(1) after the first call per directory
+    // lazy stream of the absolute paths of matching directories, in depth-first order;
+    // relative patterns start at the working directory
+    public Stream<String> glob(String pattern){return fs.glob(current,GlobPattern.compile(pattern),false);}
+    public Stream<String> glob(GlobPattern pattern){return fs.glob(current,pattern,false);} // precompiled
+    public Stream<String> globParallel(GlobPattern pattern){return fs.glob(current,pattern,true);} // fork-join walk
+    // ================= FILES =================
+    // the parent directory must exist; false when it does not or a directory has the name
+    public boolean write(String path,byte[] data){return fs.write(current,path,data,false);} // create or replace
+    public boolean append(String path,byte[] data){return fs.write(current,path,data,true);} // create or extend
+    public byte[] read(String path){ // whole file, null if missing
+        FileNode file=fs.file(current,path,false);
+        return file==null?null:file.readAll();
+    }
+    // up to len bytes at position into dst: count copied, -1 at end of file or if missing
+    public int read(String path,long position,byte[] dst,int off,int len){
+        FileNode.checkRead(position,dst,off,len); // bad arguments fail even for a missing file
+        FileNode file=fs.file(current,path,false);
+        return file==null?-1:file.read(position,dst,off,len);
+    }
+    public long size(String path){ // -1 if missing
+        FileNode file=fs.file(current,path,false);
+        return file==null?-1:file.size();
+    }
+}
+// ================= FILE SYSTEM =================
+// no global lock: navigation reads published child snapshots, mkdir locks only the
+// parent that gains a child, a file write locks only that file. The operations on the
+// FileSystem itself use a default session. FileSystem.open adds a journal directory
+class FileSystem implements Closeable{
+    private static final int DEFAULT_CACHE_SIZE=4096; // cached absolute paths
+    private static final long DEFAULT_JOURNAL_LIMIT=16<<20; // journal bytes between checkpoints
+    private final Directory root; // root directory
+    private final ComponentTable components=new ComponentTable(); // interned names
+    private final PathCache cache; // absolute path → directory, null when disabled
+    private final Session session; // default working directory
+    private volatile Journal journal; // null: in memory only
     public FileSystem(){
+        this(DEFAULT_CACHE_SIZE); // default cache
+    }
+    public FileSystem(int cacheSize){ // 0 disables the path cache
         this.root=new Directory("/"); // create root
         this.root.parent=root; // root parent points to itself
-        this.current=root; // initialize current to root
-    }
-    private String[] parsePath(String path){ // split path into components
-        if(path==null||path.isEmpty())return new String[0]; // handle empty
-        String[] parts=path.split("/"); // split by /
-        List<String> result=new ArrayList<>(); // list to hold valid parts
-        for(String part:parts){ // iterate parts
-            if(!part.isEmpty())result.add(part); // ignore empty segments
-        }
-        return result.toArray(new String[0]); // convert to array
-    }
-    // ================= SIMPLE * WILDCARD RESOLVER =================
-    // supports only "*" → match all children
-    // if exactly one child → navigate
-    // if multiple children → ambiguous → fail
-    private Directory resolveWildcard(Directory dir,String pattern){ // simple wildcard resolver
-        if(!"*".equals(pattern))return null; // only support *
-        if(dir.children.isEmpty())return null; // no match
-        if(dir.children.size()==1) // single match allowed
-            return dir.children.firstEntry().getValue();
+        this.cache=cacheSize>0?new PathCache(cacheSize):null;
+        this.session=new Session(this,root); // initialize current to root
+    }
+    // persistent: recovers the tree from directory (snapshot + journal) and journals every mutation
+    public static FileSystem open(Path directory) throws IOException{return open(directory,DEFAULT_JOURNAL_LIMIT);}
+    public static FileSystem open(Path directory,long journalLimit) throws IOException{
+        FileSystem fs=new FileSystem();
+        fs.journal=Journal.open(directory,journalLimit,fs); // replay runs before journaling starts
+        return fs;
+    }
+    public Session openSession(){return new Session(this,root);} // new working directory at /
+    Directory root(){return root;}
+    // ================= SINGLE-MATCH WILDCARD RESOLVER =================
+    // one glob component ("*", "app-?", "[ab]*") inside a cd path
+    // if exactly one child matches → navigate
+    // if multiple children match → ambiguous → fail
+    private Directory resolveWildcard(Directory dir,String pattern){ // O(children)
+        GlobPattern.Segment segment=GlobPattern.Segment.wildcard(pattern);
+        Directory match=null;
+        int matches=0;
+        NavigableMap<String,Directory> candidates=segment.candidates(dir.children); // one consistent snapshot
+        for(Directory child:candidates.values())
+            if(segment.matches(child.getName())){match=child;matches++;}
+        if(matches<=1)return match; // single match allowed, or none
         // multiple matches → ambiguous
         System.out.println("Ambiguous wildcard. Possible matches:");
-        for(String name:dir.children.keySet()) // show available options
-            System.out.println(name);
+        for(String name:candidates.keySet()) // show available options
+            if(segment.matches(name))System.out.println(name);
         return null; // ambiguous case
     }
-    private Directory navigateTo(Directory start,String[] parts,boolean createIfNotExist){ // navigate helper
+    // components are scanned in place: [i, j) is the next name between separators
+    private Directory navigateTo(Directory start,String path,boolean createIfNotExist){ // navigate helper
         Directory temp=start; // start traversal from given directory
-        for(String part:parts){ // iterate path parts
-            if(".".equals(part))continue; // stay in current
-            if("..".equals(part)){temp=temp.parent;continue;} // go to parent
-            Directory wildcardMatch=resolveWildcard(temp,part); // check wildcard
-            if(wildcardMatch!=null){temp=wildcardMatch;continue;} // move if resolved
-            if("*".equals(part))return null; // ambiguous wildcard case
-            Directory next=temp.getChild(part); // get child directory
+        int n=path.length();
+        for(int i=0,j;i<n;i=j){ // iterate path parts
+            while(i<n&&path.charAt(i)=='/')i++; // ignore empty segments
+            for(j=i;j<n&&path.charAt(j)!='/';j++); // end of component
+            int len=j-i;
+            if(len==0)break; // trailing separators
+            if(len==1&&path.charAt(i)=='.')continue; // stay in current
+            if(len==2&&path.charAt(i)=='.'&&path.charAt(i+1)=='.'){temp=temp.parent;continue;} // go to parent
+            if(len==1&&path.charAt(i)=='*'){ // check wildcard
+                Directory wildcardMatch=resolveWildcard(temp,"*");
+                if(wildcardMatch==null)return null; // ambiguous wildcard case
+                temp=wildcardMatch; // move if resolved
+                continue;
+            }
+            String name=components.find(path,i,j); // interned name, null if never created
+            Directory next=name==null?null:temp.getChild(name); // get child directory
+            if(next==null&&!createIfNotExist&&GlobPattern.hasMeta(path,i,j)){ // no literal child: try it as a pattern
+                next=resolveWildcard(temp,path.substring(i,j));
+                if(next==null)return null; // no match or ambiguous
+            }
             if(next==null){ // if child does not exist
-                if(createIfNotExist){ // if mkdir mode
-                    Directory newDir=new Directory(part); // create new directory
-                    temp.addChild(newDir); // add as child
-                    temp=newDir; // move to new directory
-                }else{
-                    return null; // fail for cd if not exist
-                }
-            }else{
-                temp=next; // move to existing directory
+                if(!createIfNotExist)return null; // fail for cd if not exist
+                Directory parent=temp;
+                String created=name!=null?name:components.intern(path,i,j);
+                Journal log=journal;
+                next=temp.getOrCreateChild(created,log==null?null:()->log.append(Journal.MKDIR,parent.childPath(created),null)); // create, or take a racing session's
+                if(next==null)return null; // a file has that name
             }
+            temp=next; // move to directory
         }
         return temp; // return final directory
     }
-    public boolean mkdir(String path){ // O(depth)
-        synchronized(lock){
-            if(path==null||path.isEmpty())return false; // invalid path
-            Directory start=path.startsWith("/")?root:current; // determine start
-            String[] parts=parsePath(path); // parse path
-            Directory result=navigateTo(start,parts,true); // navigate and create
-            return result!=null; // return success
+    // absolute paths go through the cache: O(1) on a hit (String caches its hash), else a walk
+    Directory resolve(Directory current,String path,boolean createIfNotExist){
+        if(!path.startsWith("/"))return navigateTo(current,path,createIfNotExist); // relative: walk from current
+        if(path.length()==1)return root; // go to root
+        if(cache==null)return navigateTo(root,path,createIfNotExist);
+        Directory hit=cache.get(path);
+        if(hit!=null)return hit; // exists, so mkdir has nothing to create either
+        Directory result=navigateTo(root,path,createIfNotExist);
+        if(result!=null&&!GlobPattern.hasMeta(path,0,path.length()))cache.put(path,result); // wildcard answers are not stable
+        return result;
+    }
+    // mutations hold the checkpoint lock shared, so a snapshot sees each one whole or not at all
+    boolean mkdir(Directory current,String path){
+        Journal log=journal;
+        if(log==null)return resolve(current,path,true)!=null; // navigate and create
+        boolean created;
+        log.checkpointLock.readLock().lock();
+        try{
+            created=resolve(current,path,true)!=null;
+        }finally{
+            log.checkpointLock.readLock().unlock();
         }
+        log.checkpointIfDue(this); // outside the result: a checkpoint failure is reported by sync()/close()
+        return created;
     }
-    public boolean cd(String path){ // O(depth)
-        synchronized(lock){
-            if(path==null||path.isEmpty())return false; // invalid path
-            if("/".equals(path)){current=root;return true;} // go to root
-            Directory start=path.startsWith("/")?root:current; // determine start
-            String[] parts=parsePath(path); // parse path
-            Directory result=navigateTo(start,parts,false); // navigate without create
-            if(result==null)return false; // if invalid path
-            current=result; // update current directory
-            return true; // success
+    // Time Complexity: O(depth) + O(data); the journal record precedes the change, both under the file's writers lock
+    boolean write(Directory current,String path,byte[] data,boolean append){
+        Objects.requireNonNull(data,"data"); // before anything is journaled
+        byte type=append?Journal.APPEND:Journal.WRITE;
+        Journal log=journal;
+        if(log==null)return write(current,path,data,type,null);
+        boolean written;
+        log.checkpointLock.readLock().lock();
+        try{
+            written=write(current,path,data,type,log);
+        }finally{
+            log.checkpointLock.readLock().unlock();
         }
+        log.checkpointIfDue(this); // outside the result: a checkpoint failure is reported by sync()/close()
+        return written;
     }
-    public String pwd(){ // O(depth)
-        synchronized(lock){
-            if(current==root)return "/"; // root case
-            Deque<String> stack=new ArrayDeque<>(); // stack to build path
-            Directory temp=current; // start from current
-            while(temp!=root){ // traverse up to root
-                stack.push(temp.getName()); // push directory name
-                temp=temp.parent; // move to parent
-            }
-            StringBuilder path=new StringBuilder("/"); // build absolute path
-            while(!stack.isEmpty()){ // pop stack
-                path.append(stack.pop()); // append name
-                if(!stack.isEmpty())path.append("/"); // add separator
+    private boolean write(Directory current,String path,byte[] data,byte type,Journal log){ // caller holds the checkpoint read lock
+        boolean[] created={false};
+        FileNode file=file(current,path,fresh->{ // journaled and filled before anyone can see it
+            if(log!=null)log.append(type,fresh.getPath(),data);
+            fresh.write(data);
+            created[0]=true;
+        });
+        if(file==null)return false; // no parent, or a directory has the name
+        if(created[0])return true;
+        synchronized(file.writers){ // journal order = apply order for this file
+            if(log!=null)log.append(type,file.getPath(),data);
+            if(type==Journal.APPEND)file.append(data); // monitor held only for the copy
+            else file.write(data);
+        }
+        return true;
+    }
+    FileNode file(Directory current,String path,boolean create){ // file at path, created empty if asked
+        return file(current,path,create?file->{}:null);
+    }
+    FileNode file(Directory current,String path,Consumer<FileNode> create){ // created through create when missing; null: lookup only
+        if(path==null||path.isEmpty()||path.endsWith("/"))return null; // names a directory
+        int slash=path.lastIndexOf('/');
+        String name=path.substring(slash+1);
+        if(name.equals(".")||name.equals(".."))return null;
+        Directory parent=slash<0?current:resolve(current,slash==0?"/":path.substring(0,slash),false);
+        if(parent==null)return null; // parent must exist
+        return create!=null?parent.getOrCreateFile(name,create):parent.getFile(name);
+    }
+    // ================= RECOVERY =================
+    // snapshot entries and journal records, applied without journaling them again
+    void replay(byte type,String path,byte[] data){
+        if(type==Journal.MKDIR){navigateTo(root,path,true);return;}
+        FileNode file=replayFile(path);
+        if(type==Journal.APPEND)file.append(data);
+        else file.write(data);
+    }
+    FileNode replayFile(String path){
+        int slash=path.lastIndexOf('/');
+        FileNode file=navigateTo(root,path.substring(0,slash),true).getOrCreateFile(path.substring(slash+1));
+        if(file==null)throw new IllegalStateException("journal names both a directory and a file: "+path);
+        return file;
+    }
+    public void checkpoint() throws IOException{ // snapshot now and start a new journal
+        Journal log=journal;
+        if(log!=null)log.checkpoint(this);
+    }
+    public void sync() throws IOException{ // force the journal to disk
+        Journal log=journal;
+        if(log!=null)log.sync();
+    }
+    public void close() throws IOException{ // later mutations fail rather than go unjournaled
+        Journal log=journal;
+        if(log!=null)log.close();
+    }
+    public boolean mkdir(String path){return session.mkdir(path);} // default session
+    public boolean cd(String path){return session.cd(path);} // default session
+    public String pwd(){return session.pwd();} // default session
+    public Stream<String> glob(String pattern){return session.glob(pattern);} // default session
+    public boolean write(String path,byte[] data){return session.write(path,data);} // default session
+    public boolean append(String path,byte[] data){return session.append(path,data);} // default session
+    public byte[] read(String path){return session.read(path);} // default session
+    public long size(String path){return session.size(path);} // default session
+    // Time Complexity: O(1) to build; the walk happens as the stream is consumed
+    Stream<String> glob(Directory current,GlobPattern pattern,boolean parallel){
+        Stream<String> matches=StreamSupport.stream(new GlobSpliterator(pattern,pattern.absolute?root:current),parallel);
+        return pattern.distinct?matches:matches.distinct(); // several "**" or a ".." after a wildcard can revisit
+    }
+}
+// ================= BENCHMARK =================
+// cd over a hot set of deep absolute paths: walk only (cache disabled) versus the path
+// cache, plus relative paths that always walk. Allocation per call comes from the
+// HotSpot per-thread allocation counter
+class FileSystemBenchmark{
+    private static final int OPS=2_000_000;
+    private static long allocated(){
+        return ((com.sun.management.ThreadMXBean)java.lang.management.ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+    private static void measure(String name,FileSystem fs,String[] paths){
+        for(int i=0;i<OPS;i++)fs.cd(paths[i&(paths.length-1)]); // warmup
+        long bytes=allocated(),t0=System.nanoTime();
+        for(int i=0;i<OPS;i++)fs.cd(paths[i&(paths.length-1)]);
+        long elapsed=System.nanoTime()-t0;
+        bytes=allocated()-bytes;
+        System.out.printf("%-26s %6.1f ns/op %6.1f bytes/op%n",name,(double)elapsed/OPS,(double)bytes/OPS);
+    }
+    public static void run(){
+        Random random=new Random(3);
+        String[] deep=new String[256],relative=new String[256];
+        for(int p=0;p<deep.length;p++){
+            StringBuilder path=new StringBuilder();
+            for(int d=0;d<16;d++)path.append("/dir").append(random.nextInt(4)); // 16 levels, fan-out 4
+            deep[p]=path.toString();
+            relative[p]=path.substring(1);
+        }
+        for(int cacheSize:new int[]{0,4096}){
+            FileSystem fs=new FileSystem(cacheSize);
+            for(String path:deep)fs.mkdir(path);
+            measure("absolute, cache="+cacheSize,fs,deep);
+        }
+        FileSystem fs=new FileSystem();
+        for(String path:deep)fs.mkdir(path);
+        String[] fromRoot=new String[relative.length*2]; // alternate with "/" so each walk starts at the root
+        for(int p=0;p<relative.length;p++){fromRoot[2*p]="/";fromRoot[2*p+1]=relative[p];}
+        measure("relative (walk)",fs,fromRoot);
+        threads(deep);
+    }
+    // cd + pwd per session at 1-8 threads, lock-free navigation versus the same calls
+    // serialized behind one lock (the single-lock layout)
+    private static void threads(String[] deep){
+        FileSystem fs=new FileSystem();
+        for(String path:deep)fs.mkdir(path);
+        Object lock=new Object();
+        for(int threads:new int[]{1,2,4,8}){
+            long free=throughput(fs,deep,threads,null),locked=throughput(fs,deep,threads,lock);
+            System.out.printf("threads=%d lock-free=%,d ops/s single-lock=%,d ops/s%n",threads,free,locked);
+        }
+    }
+    private static long throughput(FileSystem fs,String[] paths,int threads,Object lock){
+        long measureNanos=300_000_000L;
+        LongAdder ops=new LongAdder();
+        CountDownLatch done=new CountDownLatch(threads);
+        for(int t=0;t<threads;t++){
+            Session session=fs.openSession();
+            int seed=t;
+            new Thread(()->{
+                long local=0,end=System.nanoTime()+measureNanos;
+                for(int i=seed*31;System.nanoTime()<end;i++){
+                    String path=paths[i&(paths.length-1)];
+                    if(lock==null){session.cd(path);session.pwd();}
+                    else synchronized(lock){session.cd(path);session.pwd();}
+                    local++;
+                }
+                ops.add(local);
+                done.countDown();
+            }).start();
+        }
+        try{done.await();}catch(InterruptedException e){Thread.currentThread().interrupt();}
+        return ops.sum()*1_000_000_000L/measureNanos;
+    }
+}
+// ================= GLOB BENCHMARK =================
+// a log-shaped tree (60 months × 20 apps × a 259-directory subtree ≈ 310k directories):
+// sequential versus fork-join streams, time to the first match of a lazy stream, and a
+// literal-prefix seek versus a scan over 5000 siblings
+class GlobBenchmark{
+    private static void subtree(FileSystem fs,String path,int depth){ // fan-out 6, depth 3
+        if(depth==0)return;
+        for(int i=0;i<6;i++){
+            String child=path+"/part-"+i;
+            fs.mkdir(child);
+            subtree(fs,child,depth-1);
+        }
+    }
+    private static long best(Supplier<Long> query){ // best of 5, returns nanos
+        long best=Long.MAX_VALUE;
+        for(int round=0;round<5;round++){
+            long t0=System.nanoTime();
+            query.get();
+            best=Math.min(best,System.nanoTime()-t0);
+        }
+        return best;
+    }
+    public static void run(){
+        FileSystem fs=new FileSystem();
+        Session session=fs.openSession();
+        for(int year=2020;year<=2024;year++)for(int month=1;month<=12;month++)
+            for(int app=0;app<20;app++){
+                String base=String.format("/logs/%d-%02d/app-%d",year,month,app);
+                fs.mkdir(base);
+                subtree(fs,base,3);
             }
-            return path.toString(); // return path
+        for(String text:new String[]{"/logs/2024-*/app-?/**","/logs/*/app-1?/part-[0-2]/**","/**/part-5"}){
+            GlobPattern pattern=GlobPattern.compile(text);
+            long count=session.glob(pattern).count();
+            long sequential=best(()->session.glob(pattern).count());
+            long parallel=best(()->session.globParallel(pattern).count());
+            long first=best(()->session.glob(pattern).findFirst().isPresent()?1L:0L);
+            System.out.printf("%-32s matches=%,8d sequential=%6.1f ms parallel=%6.1f ms first=%5.1f us%n",
+                    text,count,sequential/1e6,parallel/1e6,first/1e3);
         }
+        for(int i=0;i<5000;i++)fs.mkdir("/wide/item-"+i);
+        for(String text:new String[]{"/wide/item-4999*","/wide/*-4999*"}){
+            GlobPattern pattern=GlobPattern.compile(text);
+            long nanos=best(()->{long n=0;for(int k=0;k<100;k++)n+=session.glob(pattern).count();return n;});
+            System.out.printf("%-32s %8.1f us/query%n",text,nanos/1e3/100);
+        }
+    }
+}
+// ================= PERSISTENCE BENCHMARK =================
+// journaled appends, a checkpoint, and recovery of 16 × 8 MB files plus 10k small ones:
+// heap retained after recovery (large files mapped) versus the content size, and read
+// throughput from the mapping versus heap chunks
+class PersistenceBenchmark{
+    private static long usedHeap(){
+        Runtime rt=Runtime.getRuntime();
+        for(int i=0;i<3;i++)System.gc();
+        return rt.totalMemory()-rt.freeMemory();
+    }
+    private static double readAll(FileSystem fs,int files,byte[] buffer){ // MB/s over the large files
+        long bytes=0,t0=System.nanoTime();
+        Session session=fs.openSession();
+        for(int f=0;f<files;f++)
+            for(long at=0;;){
+                int n=session.read("/data/large-"+f,at,buffer,0,buffer.length);
+                if(n<0)break;
+                at+=n;bytes+=n;
+            }
+        return bytes/1e6/((System.nanoTime()-t0)/1e9);
+    }
+    public static void run() throws IOException{
+        Path directory=Files.createTempDirectory("fs-journal");
+        int large=16,small=10_000;
+        byte[] block=new byte[64*1024];
+        new Random(5).nextBytes(block);
+        FileSystem fs=FileSystem.open(directory,64<<20);
+        fs.mkdir("/data/small");
+        long t0=System.nanoTime();
+        for(int f=0;f<large;f++)for(int b=0;b<128;b++)fs.append("/data/large-"+f,block); // 8 MB each
+        for(int f=0;f<small;f++)fs.write("/data/small/file-"+f,Arrays.copyOf(block,512));
+        fs.sync();
+        long written=(long)large*128*block.length+(long)small*512;
+        System.out.printf("journaled writes: %,d MB in %.0f ms (checkpoints included)%n",written>>20,(System.nanoTime()-t0)/1e6);
+        byte[] buffer=new byte[1<<16];
+        System.out.printf("read from heap chunks: %,.0f MB/s%n",readAll(fs,large,buffer));
+        t0=System.nanoTime();
+        fs.checkpoint();
+        System.out.printf("checkpoint: %.0f ms%n",(System.nanoTime()-t0)/1e6);
+        fs.close();
+        fs=null;
+        long before=usedHeap();
+        t0=System.nanoTime();
+        FileSystem recovered=FileSystem.open(directory);
+        long recovery=System.nanoTime()-t0;
+        long retained=usedHeap()-before;
+        System.out.printf("recovery: %.0f ms, heap retained %,d KB for %,d MB of content%n",recovery/1e6,retained>>10,written>>20);
+        System.out.printf("read from mapped snapshot: %,.0f MB/s%n",readAll(recovered,large,buffer));
+        recovered.close();
+        try(DirectoryStream<Path> files=Files.newDirectoryStream(directory)){for(Path f:files)Files.delete(f);} // live mappings stay valid
+        Files.delete(directory);
     }
 }
 // ================= DRIVER =================
 public class Main{
-    public static void main(String[] args){
+    public static void main(String[] args) throws IOException{
+        if(args.length>0&&"bench".equals(args[0])){FileSystemBenchmark.run();return;} // run benchmark
+        if(args.length>0&&"bench-files".equals(args[0])){PersistenceBenchmark.run();return;} // journal and snapshots
+        if(args.length>0&&"bench-glob".equals(args[0])){GlobBenchmark.run();return;} // glob queries
         FileSystem fs=new FileSystem(); // create filesystem instance
         fs.mkdir("/a/b/c"); // create nested directories
         fs.mkdir("/a/b/d"); // create another branch
@@ -118,6 +1117,12 @@ public class Main{
         fs.cd(".."); // go to parent
         fs.cd("d"); // go to d
         System.out.println(fs.pwd()); // /a/b/d
+        System.out.println(fs.glob("/a/**").collect(Collectors.toList())); // [/a, /a/b, /a/b/c, /a/b/d]
+        System.out.println(fs.glob("../[c-z]").collect(Collectors.toList())); // [/a/b/c, /a/b/d]
+        fs.write("/a/notes.txt","hello".getBytes(StandardCharsets.UTF_8)); // create file
+        fs.append("/a/notes.txt"," world".getBytes(StandardCharsets.UTF_8)); // extend it
+        System.out.println(new String(fs.read("/a/notes.txt"),StandardCharsets.UTF_8)); // hello world
+        System.out.println(fs.mkdir("/a/notes.txt")); // false: a file has that name
         fs.cd("/"); // go back to root
         System.out.println(fs.pwd()); // /
     }
@@ -1,28 +1,192 @@
 import java.util.*; // import utility classes
+import java.util.concurrent.*; // concurrent maps
+import java.util.concurrent.atomic.*; // atomic counters
+import java.util.concurrent.locks.*; // idle parking
 // ================= MACHINE =================
 class Machine{
     String machineId; // unique machine id
-    Set<String> capabilities; // capability set (stored lowercase)
-    int unfinishedJobs; // number of running jobs
-    int finishedJobs; // number of completed jobs
-    public Machine(String machineId,String[] capabilities){
+    int slot; // dense index in the MachineIndex bitmaps
+    BitSet capabilities; // interned capability ids
+    volatile int unfinishedJobs; // number of running jobs, changed with all of its heaps locked
+    volatile int finishedJobs; // number of completed jobs
+    List<ProfileHeap> heaps; // profile heaps this machine is a member of, ascending heap id
+    public Machine(String machineId,int slot,BitSet capabilities){
         this.machineId=machineId; // assign machine id
-        this.capabilities=new HashSet<>(); // initialize capability set
-        for(String cap:capabilities) // store capabilities in lowercase
-            this.capabilities.add(cap.toLowerCase());
+        this.slot=slot; // assign slot
+        this.capabilities=capabilities; // assign capability bits
         this.unfinishedJobs=0; // initialize counters
         this.finishedJobs=0;
+        this.heaps=new ArrayList<>(); // no profiles yet
     }
     // ================= CHECK CAPABILITY MATCH =================
     // Time Complexity: O(C)
-    public boolean canRun(String[] required){
-        for(String cap:required){ // check each required capability
-            if(!capabilities.contains(cap.toLowerCase())) // case insensitive check
+    public boolean canRun(BitSet required){
+        for(int c=required.nextSetBit(0);c>=0;c=required.nextSetBit(c+1)){ // check each required capability id
+            if(!capabilities.get(c))
                 return false;
         }
         return true; // all requirements satisfied
     }
 }
+// ================= MACHINE INDEX =================
+// capabilities are interned (lowercase) to dense ids; every capability keeps a posting
+// bitmap over machine slots, so the compatible set is the AND of the required bitmaps
+class MachineIndex{
+    private Map<String,Integer> capabilityIds; // lowercase capability -> id
+    private List<long[]> postings; // capability id -> bitmap of machine slots
+    private Machine[] machines; // slot -> machine
+    private int machineCount; // slots in use
+    private long[] allMachines; // bitmap of every slot (no requirements)
+    public MachineIndex(){
+        capabilityIds=new HashMap<>(); // initialize dictionary
+        postings=new ArrayList<>(); // initialize postings
+        machines=new Machine[16]; // initialize slots
+        allMachines=new long[1];
+    }
+    public int words(){return (machineCount+63)>>>6;} // bitmap length in longs
+    public Machine machine(int slot){return machines[slot];} // O(1)
+    // Time Complexity: O(1) average; -1 when no machine has the capability
+    public int idOf(String capability){
+        Integer id=capabilityIds.get(capability.toLowerCase()); // case insensitive
+        return id==null?-1:id;
+    }
+    private int intern(String capability){ // O(1) average
+        String key=capability.toLowerCase();
+        Integer id=capabilityIds.get(key);
+        if(id!=null)return id;
+        capabilityIds.put(key,postings.size());
+        postings.add(new long[words()]);
+        return postings.size()-1;
+    }
+    private static long[] set(long[] bitmap,int slot){ // grows by copy
+        if(slot>>>6>=bitmap.length)bitmap=Arrays.copyOf(bitmap,Math.max(bitmap.length*2,(slot>>>6)+1));
+        bitmap[slot>>>6]|=1L<<slot;
+        return bitmap;
+    }
+    // Time Complexity: O(C); re-adding an id replaces the machine in its old slot
+    public Machine add(String machineId,String[] capabilities,Machine existing){
+        int slot=existing!=null?existing.slot:machineCount++;
+        if(existing!=null){ // drop old posting bits
+            for(int c=existing.capabilities.nextSetBit(0);c>=0;c=existing.capabilities.nextSetBit(c+1))
+                postings.get(c)[slot>>>6]&=~(1L<<slot);
+        }
+        BitSet bits=new BitSet();
+        for(String cap:capabilities){ // intern and post
+            int id=intern(cap);
+            bits.set(id);
+            postings.set(id,set(postings.get(id),slot));
+        }
+        Machine machine=new Machine(machineId,slot,bits);
+        if(slot==machines.length)machines=Arrays.copyOf(machines,slot*2);
+        machines[slot]=machine;
+        allMachines=set(allMachines,slot);
+        return machine;
+    }
+    // ================= COMPATIBLE SET =================
+    // writes the AND of the required postings into out (at least words() long)
+    // Time Complexity: O(C × M / 64); false when nothing is compatible
+    public boolean compatible(int[] required,int count,long[] out){
+        int n=words();
+        long any=0;
+        for(int w=0;w<n;w++){
+            long bits=w<allMachines.length?allMachines[w]:0;
+            for(int i=0;i<count&&bits!=0;i++){
+                long[] posting=postings.get(required[i]);
+                bits&=w<posting.length?posting[w]:0;
+            }
+            out[w]=bits;
+            any|=bits;
+        }
+        return any!=0;
+    }
+}
+// ================= PROFILE HEAP =================
+// indexed min-heap of the machines compatible with one required-capability profile,
+// ordered by its strategy's comparator; position[slot] locates a machine for sifting.
+// lock guards the heap between registry changes; heaps are always locked in id order
+class ProfileHeap{
+    final BitSet profile; // required capability ids
+    final Comparator<Machine> order; // best machine first
+    final int id; // lock order
+    final ReentrantLock lock; // held while sifting or peeking under the registry read lock
+    private Machine[] heap; // binary heap
+    private int size; // machines in heap
+    private int[] position; // machine slot -> heap index, -1 = absent
+    boolean dirty; // counters changed without sifting, see rebuild
+    public ProfileHeap(BitSet profile,Comparator<Machine> order,int id){
+        this.profile=profile; // assign profile
+        this.order=order; // assign ordering
+        this.id=id; // assign lock order
+        this.lock=new ReentrantLock();
+        this.heap=new Machine[16]; // initialize heap
+        this.position=new int[16];
+        Arrays.fill(position,-1);
+    }
+    public int size(){return size;} // O(1)
+    public Machine peek(){return size==0?null:heap[0];} // O(1)
+    public Machine machine(int i){return heap[i];} // heap order, O(1)
+    public Machine[] toArray(){return Arrays.copyOf(heap,size);} // still a valid heap, O(M)
+    private boolean less(Machine a,Machine b){return order.compare(a,b)<0;} // O(1) for counter orders
+    private void place(Machine m,int i){heap[i]=m;position[m.slot]=i;} // O(1)
+    private void siftUp(int i){ // O(log M)
+        Machine m=heap[i];
+        while(i>0){
+            int parent=(i-1)>>>1;
+            if(!less(m,heap[parent]))break;
+            place(heap[parent],i);
+            i=parent;
+        }
+        place(m,i);
+    }
+    private void siftDown(int i){ // O(log M)
+        Machine m=heap[i];
+        while(true){
+            int child=2*i+1;
+            if(child>=size)break;
+            if(child+1<size&&less(heap[child+1],heap[child]))child++;
+            if(!less(heap[child],m))break;
+            place(heap[child],i);
+            i=child;
+        }
+        place(m,i);
+    }
+    // Time Complexity: O(log M)
+    public void add(Machine m){
+        if(size==heap.length)heap=Arrays.copyOf(heap,size*2);
+        if(m.slot>=position.length){
+            int old=position.length;
+            position=Arrays.copyOf(position,Math.max(old*2,m.slot+1));
+            Arrays.fill(position,old,position.length,-1);
+        }
+        heap[size]=m;
+        siftUp(size++);
+        int at=m.heaps.size(); // keep m.heaps in lock order
+        while(at>0&&m.heaps.get(at-1).id>id)at--;
+        m.heaps.add(at,this);
+    }
+    // Time Complexity: O(log M); the caller drops this heap from m.heaps
+    public void remove(Machine m){
+        int i=position[m.slot];
+        position[m.slot]=-1;
+        Machine last=heap[--size];
+        heap[size]=null;
+        if(i==size)return; // removed the tail
+        place(last,i);
+        siftUp(i);
+        siftDown(position[last.slot]);
+    }
+    // Time Complexity: O(M) Floyd heapify after bulk counter changes
+    public void rebuild(){
+        for(int i=(size>>>1)-1;i>=0;i--)siftDown(i);
+        dirty=false;
+    }
+    // Time Complexity: O(log M) after m's counter changed by one
+    public void update(Machine m){
+        int i=position[m.slot];
+        siftUp(i);
+        siftDown(position[m.slot]);
+    }
+}
 // ================= JOB =================
 class Job{
     String jobId; // job id
@@ -32,70 +196,715 @@ class Job{
         this.machine=machine; // assign machine
     }
 }
+// ================= JOB SPEC =================
+class JobSpec{
+    String jobId; // job id
+    String[] capabilitiesRequired; // required capabilities
+    public JobSpec(String jobId,String[] capabilitiesRequired){
+        this.jobId=jobId; // assign id
+        this.capabilitiesRequired=capabilitiesRequired; // assign requirements
+    }
+}
 // ================= STRATEGY INTERFACE =================
+// a strategy owns its ordering: the scheduler keeps one indexed heap per (strategy, profile)
+// built with order() and re-sifts it whenever a machine's counters change
 interface MachineSelectionStrategy{
-    Machine select(List<Machine> machines); // select best machine
+    Comparator<Machine> order(); // best machine first
+    default Machine select(ProfileHeap candidates){ // select best machine among compatible ones
+        return candidates.peek(); // O(1), heap is already in order()
+    }
 }
 // ================= STRATEGY: MINIMUM UNFINISHED JOBS =================
 class MinimumUnfinishedJobsStrategy implements MachineSelectionStrategy{
-    // Time Complexity: O(M)
-    public Machine select(List<Machine> machines){
-        Machine best=null; // best machine
-        for(Machine m:machines){ // iterate machines
-            if(best==null || // first candidate
-               m.unfinishedJobs<best.unfinishedJobs || // pick least running jobs
-               (m.unfinishedJobs==best.unfinishedJobs && // tie → lexicographic order
-                m.machineId.compareTo(best.machineId)<0))
-                best=m;
-        }
-        return best; // return selected machine
-    }
+    static final Comparator<Machine> ORDER=(a,b)->a.unfinishedJobs!=b.unfinishedJobs? // least running jobs
+            Integer.compare(a.unfinishedJobs,b.unfinishedJobs):a.machineId.compareTo(b.machineId); // tie → lexicographic order
+    public Comparator<Machine> order(){return ORDER;} // O(1)
 }
 // ================= SCHEDULER =================
+// thread safe. Registry changes (addMachine, building a profile heap, batches) take the write
+// lock. Assignments and completions share the read lock and lock only the heaps holding the
+// machine they change, in heap id order, so placements on different machines run in parallel;
+// a pick is re-checked once its heaps are locked and retried if another thread moved it
 class Scheduler{
     private Map<String,Machine> machines; // machine registry
-    private Map<String,Job> jobs; // job mapping
+    private ConcurrentHashMap<String,Job> jobs; // job mapping, removed on completion
     private Map<Integer,MachineSelectionStrategy> strategies; // criteria -> strategy
+    private MachineIndex index; // capability postings
+    private long[] compatible; // reused candidate bitmap, write lock only
+    private Map<MachineSelectionStrategy,Map<BitSet,ProfileHeap>> profiles; // strategy -> required ids -> compatible machines
+    private int nextHeapId; // lock order of the next heap, write lock only
+    private final ReentrantReadWriteLock registry; // machines, index and profile maps
+    private final LongAdder retries; // picks lost to a concurrent change
     public Scheduler(){
         machines=new HashMap<>(); // initialize machines
-        jobs=new HashMap<>(); // initialize jobs
+        index=new MachineIndex(); // initialize index
+        compatible=new long[1];
+        profiles=new HashMap<>(); // heaps are built on first use
+        registry=new ReentrantReadWriteLock();
+        retries=new LongAdder();
+        jobs=new ConcurrentHashMap<>(); // initialize jobs
         strategies=new HashMap<>(); // initialize strategies
         strategies.put(1,new MinimumUnfinishedJobsStrategy()); // register criteria 1 → least loaded strategy
+        for(MachineSelectionStrategy strategy:strategies.values())profiles.put(strategy,new HashMap<>());
     }
     // ================= ADD MACHINE =================
-    // Time Complexity: O(C)
+    // Time Complexity: O(C + P × (C + log M)) for P profiles seen so far
     public void addMachine(String machineId,String[] capabilities){
-        machines.put(machineId,new Machine(machineId,capabilities)); // add machine
+        registry.writeLock().lock();
+        try{
+            addMachineLocked(machineId,capabilities);
+        }finally{
+            registry.writeLock().unlock();
+        }
+    }
+    private void addMachineLocked(String machineId,String[] capabilities){
+        Machine old=machines.get(machineId);
+        if(old!=null){ // replaced machine leaves every heap
+            for(ProfileHeap heap:old.heaps)heap.remove(old);
+            old.heaps.clear();
+        }
+        Machine machine=index.add(machineId,capabilities,old);
+        machines.put(machineId,machine); // add machine
+        for(Map<BitSet,ProfileHeap> byProfile:profiles.values()) // join existing profiles it satisfies
+            for(ProfileHeap heap:byProfile.values())
+                if(machine.canRun(heap.profile))heap.add(machine);
+    }
+    public long getRetryCount(){return retries.sum();} // picks retried after a concurrent change
+    // ================= PROFILE LOOKUP =================
+    // Time Complexity: O(C); null when some capability is unknown to every machine
+    private BitSet keyOf(String[] capabilitiesRequired){
+        BitSet key=new BitSet();
+        for(String cap:capabilitiesRequired){ // intern requirements once per job
+            int id=index.idOf(cap);
+            if(id<0)return null; // no machine has it
+            key.set(id);
+        }
+        return key;
+    }
+    public BitSet requirementsOf(String[] capabilitiesRequired){ // interned ids, null = unknown capability
+        registry.readLock().lock();
+        try{
+            return keyOf(capabilitiesRequired);
+        }finally{
+            registry.readLock().unlock();
+        }
+    }
+    // Time Complexity: O(1) once built; first use O(C × M / 64 + compatible machines × log M). Write lock held
+    private ProfileHeap profileOf(MachineSelectionStrategy strategy,BitSet key){
+        Map<BitSet,ProfileHeap> byProfile=profiles.get(strategy);
+        ProfileHeap heap=byProfile.get(key);
+        if(heap!=null)return heap;
+        heap=new ProfileHeap(key,strategy.order(),nextHeapId++); // build from the posting bitmaps
+        int[] required=key.stream().toArray();
+        int words=index.words();
+        if(compatible.length<words)compatible=new long[Math.max(words,compatible.length*2)];
+        index.compatible(required,required.length,compatible);
+        for(int w=0;w<words;w++)
+            for(long bits=compatible[w];bits!=0;bits&=bits-1) // iterate set bits
+                heap.add(index.machine(w<<6|Long.numberOfTrailingZeros(bits)));
+        byProfile.put(heap.profile,heap);
+        return heap;
+    }
+    // Time Complexity: O(C) once built; heaps are never dropped, so the result stays valid
+    private ProfileHeap heapOf(MachineSelectionStrategy strategy,String[] capabilitiesRequired){
+        BitSet key;
+        registry.readLock().lock();
+        try{
+            key=keyOf(capabilitiesRequired);
+            if(key==null)return null;
+            ProfileHeap heap=profiles.get(strategy).get(key);
+            if(heap!=null)return heap;
+        }finally{
+            registry.readLock().unlock();
+        }
+        registry.writeLock().lock(); // first use of the profile
+        try{
+            return profileOf(strategy,key);
+        }finally{
+            registry.writeLock().unlock();
+        }
+    }
+    // ================= COUNTER CHANGE =================
+    // locks every heap holding m in id order (deadlock free), re-checks the pick when there is
+    // one, then moves m's counters and re-sifts it. Registry read lock held
+    // Time Complexity: O(H × log M)
+    private boolean change(Machine m,int running,int finished,ProfileHeap pickedFrom,MachineSelectionStrategy strategy){
+        List<ProfileHeap> heaps=m.heaps;
+        for(ProfileHeap heap:heaps)heap.lock.lock();
+        try{
+            if(pickedFrom!=null&&strategy.select(pickedFrom)!=m)return false; // another thread moved it
+            synchronized(m){ // a replaced machine has no heaps left to lock
+                m.unfinishedJobs+=running;
+                m.finishedJobs+=finished;
+            }
+            for(ProfileHeap heap:heaps)heap.update(m); // reorder its profiles
+            return true;
+        }finally{
+            for(ProfileHeap heap:heaps)heap.lock.unlock();
+        }
     }
     // ================= ASSIGN MACHINE TO JOB =================
-    // Time Complexity: O(M × C)
+    // Time Complexity: O(C + H × log M) for a machine in H profile heaps, per attempt
     public String assignMachineToJob(String jobId,String[] capabilitiesRequired,int criteria){
         MachineSelectionStrategy strategy=strategies.get(criteria); // fetch strategy
         if(strategy==null)return ""; // invalid criteria
-        List<Machine> compatible=new ArrayList<>(); // compatible machines
-        for(Machine m:machines.values()){ // filter machines
-            if(m.canRun(capabilitiesRequired))
-                compatible.add(m);
+        ProfileHeap candidates=heapOf(strategy,capabilitiesRequired);
+        if(candidates==null)return ""; // no compatible machine
+        registry.readLock().lock();
+        try{
+            while(true){
+                Machine selected;
+                candidates.lock.lock();
+                try{
+                    if(candidates.size()==0)return ""; // no compatible machine
+                    selected=strategy.select(candidates); // select machine
+                }finally{
+                    candidates.lock.unlock();
+                }
+                if(change(selected,1,0,candidates,strategy)){ // update running jobs
+                    jobs.put(jobId,new Job(jobId,selected)); // store job
+                    return selected.machineId; // return machine id
+                }
+                retries.increment(); // pick again
+            }
+        }finally{
+            registry.readLock().unlock();
+        }
+    }
+    // ================= BATCH ASSIGNMENT =================
+    // groups jobs by capability profile and places the most constrained profiles first.
+    // Each group water-fills its candidates: machines are popped from a copy of the profile
+    // heap in (unfinishedJobs, machineId) order until raising them all to a common level
+    // absorbs the group; the remainder goes one each to the lowest ids at that level.
+    // Water-filling balances load, so the batch always places by criteria 1 (least unfinished jobs).
+    // Returns machine ids in input order ("" = no compatible machine)
+    // Time Complexity: O(N × C + G × K log K + P × M) for G groups of up to K candidates and P profiles
+    public List<String> assignMachinesToJobs(List<JobSpec> specs){
+        registry.writeLock().lock(); // the whole batch sees one load snapshot
+        try{
+            return assignLocked(specs);
+        }finally{
+            registry.writeLock().unlock();
+        }
+    }
+    private List<String> assignLocked(List<JobSpec> specs){
+        MachineSelectionStrategy leastLoaded=strategies.get(1); // heaps in (unfinishedJobs, machineId) order
+        String[] result=new String[specs.size()];
+        Arrays.fill(result,"");
+        Map<ProfileHeap,List<Integer>> groups=new HashMap<>(); // profile -> job positions
+        Map<String[],ProfileHeap> resolved=new IdentityHashMap<>(); // specs often share one array
+        for(int i=0;i<specs.size();i++){
+            String[] caps=specs.get(i).capabilitiesRequired;
+            ProfileHeap heap=resolved.get(caps);
+            if(heap==null&&!resolved.containsKey(caps)){
+                BitSet key=keyOf(caps);
+                resolved.put(caps,heap=key==null?null:profileOf(leastLoaded,key));
+            }
+            if(heap!=null&&heap.size()>0)groups.computeIfAbsent(heap,h->new ArrayList<>()).add(i);
+        }
+        List<ProfileHeap> order=new ArrayList<>(groups.keySet());
+        order.sort(Comparator.comparingInt(ProfileHeap::size).thenComparingInt(h->h.id)); // fewest candidates first
+        for(ProfileHeap profile:order){
+            List<Integer> members=groups.get(profile);
+            if(profile.dirty)profile.rebuild(); // loads changed by earlier groups
+            Machine[] heap=profile.toArray(); // min-heap copy, popped lazily
+            int heapSize=heap.length;
+            List<Machine> filled=new ArrayList<>(); // machines below the water line
+            long remaining=members.size(),level;
+            filled.add(heap[0]);
+            level=heap[0].unfinishedJobs;
+            heap[0]=heap[--heapSize];
+            siftDown(heap,heapSize,0,profile.order);
+            while(heapSize>0){ // raise the water to the next machine's load if the jobs allow
+                long gap=heap[0].unfinishedJobs-level;
+                if(gap*filled.size()>=remaining)break;
+                remaining-=gap*filled.size();
+                level=heap[0].unfinishedJobs;
+                filled.add(heap[0]);
+                heap[0]=heap[--heapSize];
+                siftDown(heap,heapSize,0,profile.order);
+            }
+            long raise=remaining/filled.size(); // everyone reaches level + raise
+            int extra=(int)(remaining%filled.size()); // lowest ids get one more
+            filled.sort(Comparator.comparing((Machine m)->m.machineId));
+            int next=0;
+            for(int k=0;k<filled.size();k++){
+                Machine m=filled.get(k);
+                int add=(int)(level+raise-m.unfinishedJobs)+(k<extra?1:0);
+                for(int a=0;a<add;a++){
+                    JobSpec spec=specs.get(members.get(next++));
+                    jobs.put(spec.jobId,new Job(spec.jobId,m)); // store job
+                    result[members.get(next-1)]=m.machineId;
+                }
+                if(add==0)continue;
+                m.unfinishedJobs+=add; // update running jobs
+                for(ProfileHeap h:m.heaps)h.dirty=true; // re-heapified once, not per machine
+            }
+        }
+        for(Map<BitSet,ProfileHeap> byProfile:profiles.values()) // restore heap order
+            for(ProfileHeap h:byProfile.values())if(h.dirty)h.rebuild();
+        return Arrays.asList(result);
+    }
+    private static void siftDown(Machine[] heap,int size,int i,Comparator<Machine> order){ // O(log K), same order as ProfileHeap
+        Machine m=heap[i];
+        while(true){
+            int child=2*i+1;
+            if(child>=size)break;
+            if(child+1<size&&order.compare(heap[child+1],heap[child])<0)child++;
+            if(order.compare(heap[child],m)>=0)break;
+            heap[i]=heap[child];
+            i=child;
+        }
+        heap[i]=m;
+    }
+    public int unfinishedJobs(String machineId){ // O(1); -1 if unknown
+        Machine m=machine(machineId);
+        return m==null?-1:m.unfinishedJobs;
+    }
+    Machine machine(String machineId){ // O(1)
+        registry.readLock().lock();
+        try{
+            return machines.get(machineId);
+        }finally{
+            registry.readLock().unlock();
+        }
+    }
+    // ================= MOVE JOB =================
+    // Time Complexity: O(H × log M); false when the job is finished or unknown. Used when another machine takes over a queued job
+    public boolean moveJob(String jobId,String toMachineId){
+        registry.readLock().lock();
+        try{
+            Machine to=machines.get(toMachineId);
+            Job job=jobs.get(jobId);
+            if(to==null||job==null||!jobs.replace(jobId,job,new Job(jobId,to)))return false;
+            change(to,1,0,null,null); // load follows the job
+            change(job.machine,-1,0,null,null);
+            return true;
+        }finally{
+            registry.readLock().unlock();
         }
-        if(compatible.isEmpty())return ""; // no compatible machine
-        Machine selected=strategy.select(compatible); // select machine
-        selected.unfinishedJobs++; // update running jobs
-        jobs.put(jobId,new Job(jobId,selected)); // store job
-        return selected.machineId; // return machine id
     }
     // ================= JOB COMPLETED =================
-    // Time Complexity: O(1)
+    // Time Complexity: O(H × log M); completing the same job twice has no further effect
     public void jobCompleted(String jobId){
-        Job job=jobs.get(jobId); // fetch job
+        Job job=jobs.remove(jobId); // claim completion
         if(job==null)return; // validation
-        Machine m=job.machine; // get machine
-        m.unfinishedJobs--; // decrease running jobs
-        m.finishedJobs++; // increase completed jobs
+        registry.readLock().lock();
+        try{
+            change(job.machine,-1,1,null,null); // replaced machines are in no heap
+        }finally{
+            registry.readLock().unlock();
+        }
+    }
+}
+// ================= LATENCY HISTOGRAM =================
+// power-of-two nanosecond buckets; lock-free recording, percentiles accurate to 2x
+class LatencyHistogram{
+    private final AtomicLongArray buckets=new AtomicLongArray(64); // bucket b: [2^(b-1), 2^b) ns
+    private final LongAdder total=new LongAdder(); // sum of recorded values
+    private final LongAdder count=new LongAdder(); // values recorded
+    public void record(long nanos){ // O(1)
+        buckets.incrementAndGet(64-Long.numberOfLeadingZeros(Math.max(0,nanos)));
+        total.add(nanos);
+        count.increment();
+    }
+    public long count(){return count.sum();} // O(stripes)
+    // Time Complexity: O(64); upper bound of the bucket holding the p-th percentile
+    public long percentile(double p){
+        long n=count.sum(),rank=(long)Math.ceil(p/100*n),seen=0;
+        for(int b=0;b<64;b++){
+            seen+=buckets.get(b);
+            if(seen>=rank&&seen>0)return b==0?0:1L<<b;
+        }
+        return 0;
+    }
+    public String summary(){ // microseconds
+        long n=count();
+        return String.format("n=%d mean=%dus p50<=%dus p99<=%dus",n,n==0?0:total.sum()/n/1000,percentile(50)/1000,percentile(99)/1000);
+    }
+}
+// ================= EXECUTION JOB =================
+class ExecutionJob<T>{
+    final String jobId; // scheduler job id
+    final BitSet required; // interned capability ids
+    final Callable<T> task; // work
+    final CompletableFuture<T> future; // completed after jobCompleted
+    final long enqueuedNanos; // for queue-wait time
+    public ExecutionJob(String jobId,BitSet required,Callable<T> task){
+        this.jobId=jobId; // assign id
+        this.required=required; // assign requirements
+        this.task=task; // assign work
+        this.future=new CompletableFuture<>();
+        this.enqueuedNanos=System.nanoTime();
+    }
+}
+// ================= MACHINE WORKER =================
+// one machine's pool: its threads take from the head of the local deque, thieves from the tail
+class MachineWorker{
+    final Machine machine; // scheduler machine
+    final ConcurrentLinkedDeque<ExecutionJob<?>> deque; // placed, not yet started
+    final Thread[] threads; // worker pool
+    final LatencyHistogram queueWait; // enqueue -> start
+    final LatencyHistogram runTime; // start -> finish
+    final LongAdder stolen; // jobs this machine took from others
+    public MachineWorker(Machine machine,int threads){
+        this.machine=machine; // assign machine
+        this.deque=new ConcurrentLinkedDeque<>();
+        this.threads=new Thread[threads];
+        this.queueWait=new LatencyHistogram();
+        this.runTime=new LatencyHistogram();
+        this.stolen=new LongAdder();
+    }
+}
+// ================= WORK-STEALING EXECUTOR =================
+// runs jobs on the machine the Scheduler picks. An idle thread first drains its
+// own deque, then scans other machines' tails for a job its machine can run and moves it
+// (the scheduler's load follows via moveJob). jobCompleted is called before the future completes.
+// Threads that find nothing spin briefly, then wait on idleLock until a submit or shutdown signals
+class WorkStealingExecutor{
+    private static final int STEAL_SCAN=8; // queued jobs inspected per victim
+    private final Scheduler scheduler; // placement and load accounting
+    private final int threadsPerMachine; // pool size
+    private final boolean stealing; // allow stealing
+    private final ConcurrentHashMap<String,MachineWorker> workers; // machineId -> worker
+    private volatile MachineWorker[] victims; // steal scan order
+    private final AtomicInteger pending; // submitted, not finished
+    private final Set<String> active; // ids of submitted, unfinished jobs
+    private final AtomicLong signals; // bumped by every submit and by shutdown
+    private final Object idleLock; // idle threads wait here
+    private volatile int sleepers; // threads waiting on idleLock, changed under it
+    private volatile boolean running; // accepting jobs
+    public WorkStealingExecutor(Scheduler scheduler,int threadsPerMachine,boolean stealing){
+        this.scheduler=scheduler; // assign scheduler
+        this.threadsPerMachine=threadsPerMachine;
+        this.stealing=stealing;
+        this.workers=new ConcurrentHashMap<>();
+        this.victims=new MachineWorker[0];
+        this.pending=new AtomicInteger();
+        this.active=ConcurrentHashMap.newKeySet();
+        this.signals=new AtomicLong();
+        this.idleLock=new Object();
+        this.running=true;
+    }
+    // ================= ADD MACHINE =================
+    // Time Complexity: O(C + P × K) in the scheduler, plus thread start-up
+    public synchronized void addMachine(String machineId,String[] capabilities){
+        if(workers.containsKey(machineId))throw new IllegalArgumentException("Machine already running: "+machineId);
+        scheduler.addMachine(machineId,capabilities);
+        MachineWorker worker=new MachineWorker(scheduler.machine(machineId),threadsPerMachine);
+        workers.put(machineId,worker);
+        MachineWorker[] next=Arrays.copyOf(victims,victims.length+1);
+        next[victims.length]=worker;
+        victims=next;
+        for(int i=0;i<threadsPerMachine;i++){
+            Thread t=new Thread(()->workLoop(worker),machineId+"-worker-"+i);
+            t.setDaemon(true);
+            worker.threads[i]=t;
+            t.start();
+        }
+    }
+    // ================= SUBMIT =================
+    // Time Complexity: one scheduler assignment; the future fails if no machine can run the job
+    // or a job with the same id is still unfinished
+    public <T> CompletableFuture<T> submit(String jobId,String[] capabilitiesRequired,Callable<T> task){
+        pending.incrementAndGet(); // before the running check, see shutdown
+        if(!running){
+            pending.decrementAndGet();
+            CompletableFuture<T> rejected=new CompletableFuture<>();
+            rejected.completeExceptionally(new RejectedExecutionException("Executor is shut down"));
+            return rejected;
+        }
+        if(!active.add(jobId)){ // the scheduler keys load by job id
+            pending.decrementAndGet();
+            CompletableFuture<T> rejected=new CompletableFuture<>();
+            rejected.completeExceptionally(new IllegalArgumentException("Duplicate job id: "+jobId));
+            return rejected;
+        }
+        BitSet required=scheduler.requirementsOf(capabilitiesRequired);
+        String machineId=required==null?"":scheduler.assignMachineToJob(jobId,capabilitiesRequired,1);
+        ExecutionJob<T> job=new ExecutionJob<>(jobId,required,task);
+        MachineWorker worker=workers.get(machineId);
+        if(worker==null){ // no compatible machine
+            active.remove(jobId);
+            pending.decrementAndGet();
+            job.future.completeExceptionally(new IllegalStateException("No compatible machine for job "+jobId));
+            return job.future;
+        }
+        worker.deque.addLast(job);
+        signal(); // wake idle threads, the owner or a thief
+        return job.future;
+    }
+    // Time Complexity: O(1) when nobody sleeps, else O(sleepers) wake-ups
+    private void signal(){
+        signals.incrementAndGet(); // seen by threads about to sleep
+        if(sleepers>0)synchronized(idleLock){idleLock.notifyAll();}
+    }
+    // ================= WORKER LOOP =================
+    private void workLoop(MachineWorker self){
+        int idle=0;
+        while(true){
+            long seen=signals.get(); // submits after this wake us
+            ExecutionJob<?> job=self.deque.pollFirst(); // own work first
+            if(job==null&&stealing)job=steal(self);
+            if(job!=null){idle=0;execute(self,job);continue;}
+            if(!running&&pending.get()==0)return; // drained
+            if(++idle<64){Thread.onSpinWait();continue;}
+            synchronized(idleLock){ // block until the next submit or shutdown
+                sleepers++;
+                try{
+                    while(signals.get()==seen)idleLock.wait();
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    return;
+                }finally{
+                    sleepers--;
+                }
+            }
+        }
+    }
+    // Time Complexity: O(machines × STEAL_SCAN) capability checks
+    private ExecutionJob<?> steal(MachineWorker thief){
+        MachineWorker[] all=victims;
+        int start=ThreadLocalRandom.current().nextInt(all.length);
+        for(int i=0;i<all.length;i++){
+            MachineWorker victim=all[(start+i)%all.length];
+            if(victim==thief)continue;
+            int scanned=0;
+            for(Iterator<ExecutionJob<?>> it=victim.deque.descendingIterator();it.hasNext()&&scanned<STEAL_SCAN;scanned++){
+                ExecutionJob<?> job=it.next();
+                if(!thief.machine.canRun(job.required))continue; // capability constraint
+                if(!victim.deque.removeLastOccurrence(job))continue; // taken meanwhile
+                scheduler.moveJob(job.jobId,thief.machine.machineId);
+                thief.stolen.increment();
+                return job;
+            }
+        }
+        return null;
+    }
+    private <T> void execute(MachineWorker self,ExecutionJob<T> job){
+        long start=System.nanoTime();
+        self.queueWait.record(start-job.enqueuedNanos);
+        try{
+            T result=job.task.call();
+            scheduler.jobCompleted(job.jobId); // load drops before callers observe completion
+            active.remove(job.jobId); // id may be reused from here on
+            job.future.complete(result);
+        }catch(Throwable e){
+            scheduler.jobCompleted(job.jobId);
+            active.remove(job.jobId);
+            job.future.completeExceptionally(e);
+        }finally{
+            self.runTime.record(System.nanoTime()-start);
+            if(pending.decrementAndGet()==0&&!running)signal(); // last job after shutdown: let threads exit
+        }
+    }
+    // ================= STATISTICS / SHUTDOWN =================
+    public LatencyHistogram queueWait(String machineId){return workers.get(machineId).queueWait;} // O(1)
+    public LatencyHistogram runTime(String machineId){return workers.get(machineId).runTime;} // O(1)
+    public long stolen(String machineId){return workers.get(machineId).stolen.sum();} // O(1)
+    public Set<String> machineIds(){return new TreeSet<>(workers.keySet());} // sorted
+    // rejects new jobs, runs everything already submitted, then stops the threads
+    public void shutdown() throws InterruptedException{
+        running=false;
+        signal(); // sleeping threads re-check and exit once drained
+        for(MachineWorker worker:victims)for(Thread t:worker.threads)t.join();
+    }
+}
+// ================= BENCHMARK =================
+// assignment latency with 100k machines drawn from 32 capabilities
+class SchedulerBenchmark{
+    static final String[] CAPABILITIES=new String[32]; // capability names
+    static{for(int i=0;i<CAPABILITIES.length;i++)CAPABILITIES[i]="Capability-"+i;}
+    static String[] randomProfile(Random rnd,int size){ // distinct capabilities
+        Set<String> caps=new LinkedHashSet<>();
+        while(caps.size()<size)caps.add(CAPABILITIES[rnd.nextInt(size>3?CAPABILITIES.length:8)]);
+        return caps.toArray(new String[0]);
+    }
+    public static void run(){
+        Random rnd=new Random(42);
+        Scheduler scheduler=new Scheduler();
+        for(int i=0;i<100_000;i++)scheduler.addMachine("machine"+i,randomProfile(rnd,6)); // broad machines
+        String[][] profiles=new String[64][];
+        for(int i=0;i<profiles.length;i++)profiles[i]=randomProfile(rnd,1+rnd.nextInt(2)); // narrow jobs
+        for(int round=0;round<3;round++){ // first round warms up
+            int jobs=20_000,placed=0;
+            long t0=System.nanoTime();
+            for(int j=0;j<jobs;j++){
+                if(!scheduler.assignMachineToJob("job"+round+"-"+j,profiles[j&63],1).isEmpty())placed++;
+            }
+            long elapsed=System.nanoTime()-t0;
+            System.out.printf("round=%d jobs=%,d placed=%,d avg=%,d ns/assignment%n",round,jobs,placed,elapsed/jobs);
+        }
+    }
+}
+// ================= CONTENTION BENCHMARK =================
+// request threads assign and complete jobs against one scheduler: its own per-heap
+// locking versus the same Scheduler serialized behind one global lock.
+// Fairness: after a burst of assignments without completions, the load spread
+// (max - min) and Jain's index, sum(x)^2 / (n × sum(x^2)), over one profile's machines
+class ConcurrentSchedulerBenchmark{
+    interface Api{String assign(String jobId,String[] caps);void complete(String jobId);}
+    private static final int MACHINES=10_000,OPS_PER_THREAD=100_000;
+    private static long run(Api api,String[][] profiles,int threads) throws InterruptedException{
+        Thread[] workers=new Thread[threads];
+        long t0=System.nanoTime();
+        for(int t=0;t<threads;t++){
+            final int id=t;
+            workers[t]=new Thread(()->{
+                ArrayDeque<String> running=new ArrayDeque<>(); // this thread's outstanding jobs
+                for(int i=0;i<OPS_PER_THREAD;i++){
+                    String jobId="t"+id+"-"+i;
+                    api.assign(jobId,profiles[i&(profiles.length-1)]);
+                    running.add(jobId);
+                    if(running.size()>32)api.complete(running.poll()); // steady state
+                }
+            });
+            workers[t].start();
+        }
+        for(Thread w:workers)w.join();
+        return System.nanoTime()-t0;
+    }
+    public static void run() throws InterruptedException{
+        Random rnd=new Random(42);
+        String[][] machineCaps=new String[MACHINES][];
+        for(int i=0;i<MACHINES;i++)machineCaps[i]=SchedulerBenchmark.randomProfile(rnd,6);
+        String[][] profiles=new String[16][];
+        for(int i=0;i<profiles.length;i++)profiles[i]=SchedulerBenchmark.randomProfile(rnd,1+rnd.nextInt(2));
+        for(int threads:new int[]{1,2,4,8}){
+            for(String mode:new String[]{"global","per-heap"}){
+                for(int round=0;round<2;round++){ // first round warms up
+                    Api api;
+                    Scheduler s=new Scheduler();
+                    for(int i=0;i<MACHINES;i++)s.addMachine("machine"+i,machineCaps[i]);
+                    if("global".equals(mode)){
+                        api=new Api(){
+                            public synchronized String assign(String jobId,String[] caps){return s.assignMachineToJob(jobId,caps,1);}
+                            public synchronized void complete(String jobId){s.jobCompleted(jobId);}
+                        };
+                    }else{
+                        api=new Api(){
+                            public String assign(String jobId,String[] caps){return s.assignMachineToJob(jobId,caps,1);}
+                            public void complete(String jobId){s.jobCompleted(jobId);}
+                        };
+                    }
+                    long elapsed=run(api,profiles,threads);
+                    if(round==1)System.out.printf("%-9s threads=%d throughput=%,d ops/s retries=%,d%n",mode,threads,
+                            2L*threads*OPS_PER_THREAD*1_000_000_000L/elapsed,s.getRetryCount());
+                }
+            }
+        }
+        // fairness: 8 threads place a burst on one profile with no completions
+        Scheduler cs=new Scheduler();
+        for(int i=0;i<MACHINES;i++)cs.addMachine("machine"+i,machineCaps[i]);
+        String[] profile=profiles[0];
+        Thread[] workers=new Thread[8];
+        for(int t=0;t<workers.length;t++){
+            final int id=t;
+            workers[t]=new Thread(()->{for(int i=0;i<20_000;i++)cs.assignMachineToJob("f"+id+"-"+i,profile,1);});
+            workers[t].start();
+        }
+        for(Thread w:workers)w.join();
+        int min=Integer.MAX_VALUE,max=0,n=0;
+        double sum=0,sumSq=0;
+        for(int i=0;i<MACHINES;i++){
+            if(!canRun(machineCaps[i],profile))continue; // outside the profile
+            int load=cs.unfinishedJobs("machine"+i);
+            min=Math.min(min,load);max=Math.max(max,load);
+            sum+=load;sumSq+=(double)load*load;n++;
+        }
+        System.out.printf("fairness: machines=%d min=%d max=%d spread=%d jain=%.4f retries=%,d%n",
+                n,min,max,max-min,sum*sum/(n*sumSq),cs.getRetryCount());
+    }
+    private static boolean canRun(String[] caps,String[] required){ // benchmark-side check
+        Set<String> have=new HashSet<>();
+        for(String c:caps)have.add(c.toLowerCase());
+        for(String r:required)if(!have.contains(r.toLowerCase()))return false;
+        return true;
+    }
+}
+// ================= EXECUTOR BENCHMARK =================
+// jobs of uneven length (sleeps model I/O-bound work) on 8 machines × 2 threads; placement
+// balances job counts, not durations, so makespan shows what stealing recovers
+class ExecutorBenchmark{
+    public static void run() throws Exception{
+        for(boolean stealing:new boolean[]{false,true}){
+            WorkStealingExecutor executor=new WorkStealingExecutor(new Scheduler(),2,stealing);
+            for(int i=0;i<8;i++)executor.addMachine("machine"+i,i<4?new String[]{"cpu","gpu"}:new String[]{"cpu"});
+            Random rnd=new Random(7);
+            List<CompletableFuture<Integer>> futures=new ArrayList<>();
+            long t0=System.nanoTime();
+            for(int j=0;j<2_000;j++){
+                int millis=rnd.nextInt(10)==0?20:1; // 10% long jobs
+                String[] caps=j%4==0?new String[]{"gpu"}:new String[]{"cpu"};
+                futures.add(executor.submit("job"+j,caps,()->{Thread.sleep(millis);return millis;}));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            long elapsed=System.nanoTime()-t0;
+            System.out.printf("stealing=%s makespan=%,d ms%n",stealing,elapsed/1_000_000);
+            for(String id:executor.machineIds())
+                System.out.printf("  %s stolen=%d wait[%s] run[%s]%n",id,executor.stolen(id),
+                        executor.queueWait(id).summary(),executor.runTime(id).summary());
+            executor.shutdown();
+        }
+    }
+}
+// ================= BATCH BENCHMARK =================
+// 50k jobs over overlapping profiles (narrow ones arrive last, the worst case for
+// greedy): assignMachineToJob in a loop versus one assignMachinesToJobs call
+class BatchBenchmark{
+    private static Scheduler cluster(){
+        Scheduler s=new Scheduler();
+        Random rnd=new Random(11);
+        for(int i=0;i<2_000;i++)s.addMachine("machine"+i,SchedulerBenchmark.randomProfile(rnd,6));
+        return s;
+    }
+    private static List<JobSpec> jobs(){
+        Random rnd=new Random(13);
+        String[][] profiles=new String[64][];
+        for(int i=0;i<profiles.length;i++)profiles[i]=SchedulerBenchmark.randomProfile(rnd,i<32?1:2);
+        List<JobSpec> specs=new ArrayList<>();
+        for(int j=0;j<50_000;j++){ // broad profiles first, then narrow
+            int p=j<30_000?rnd.nextInt(32):32+rnd.nextInt(32);
+            specs.add(new JobSpec("job"+j,profiles[p]));
+        }
+        return specs;
+    }
+    private static String stats(Scheduler s){ // over all machines
+        long n=0,sum=0,sumSq=0,max=0;
+        for(int i=0;i<2_000;i++){
+            long load=s.unfinishedJobs("machine"+i);
+            n++;sum+=load;sumSq+=load*load;max=Math.max(max,load);
+        }
+        double mean=(double)sum/n;
+        return String.format("jobs=%d max=%d variance=%.2f",sum,max,(double)sumSq/n-mean*mean);
+    }
+    public static void run(){
+        List<JobSpec> specs=jobs();
+        long loop=Long.MAX_VALUE,bulk=Long.MAX_VALUE; // best of 7 runs, first ones warm up
+        Scheduler single=null,batch=null;
+        for(int round=0;round<7;round++){
+            single=cluster();
+            System.gc();
+            long t0=System.nanoTime();
+            for(JobSpec spec:specs)single.assignMachineToJob(spec.jobId,spec.capabilitiesRequired,1);
+            loop=Math.min(loop,System.nanoTime()-t0);
+            batch=cluster();
+            System.gc();
+            t0=System.nanoTime();
+            batch.assignMachinesToJobs(specs);
+            bulk=Math.min(bulk,System.nanoTime()-t0);
+        }
+        System.out.printf("single loop: %,d jobs/s %s%n",specs.size()*1_000_000_000L/loop,stats(single));
+        System.out.printf("batch:       %,d jobs/s %s%n",specs.size()*1_000_000_000L/bulk,stats(batch));
     }
 }
 // ================= DRIVER =================
 public class Main{
-    public static void main(String[] args){
+    public static void main(String[] args) throws Exception{
+        if(args.length>0&&"bench".equals(args[0])){SchedulerBenchmark.run();return;} // run benchmark
+        if(args.length>0&&"bench-concurrent".equals(args[0])){ConcurrentSchedulerBenchmark.run();return;} // contention
+        if(args.length>0&&"bench-executor".equals(args[0])){ExecutorBenchmark.run();return;} // work stealing
+        if(args.length>0&&"bench-batch".equals(args[0])){BatchBenchmark.run();return;} // bulk placement
         Scheduler scheduler=new Scheduler(); // create scheduler
         scheduler.addMachine("machineA",
                 new String[]{"image compression"}); // add machine A
@@ -106,5 +915,16 @@ public class Main{
                 new String[]{"image compression"},
                 1); // use minimum unfinished jobs strategy
         System.out.println(assigned); // print assigned machine
+        List<JobSpec> batch=new ArrayList<>(); // bulk submission
+        for(int i=0;i<4;i++)batch.add(new JobSpec("batch"+i,new String[]{"image compression"}));
+        System.out.println(scheduler.assignMachinesToJobs(batch)); // balanced placement
+
+        WorkStealingExecutor executor=new WorkStealingExecutor(new Scheduler(),1,true); // run jobs
+        executor.addMachine("machineA",new String[]{"image compression"});
+        executor.addMachine("machineB",new String[]{"image compression","video encoding"});
+        CompletableFuture<String> thumbnail=executor.submit("job2",new String[]{"image compression"},()->"thumbnail.png");
+        CompletableFuture<String> video=executor.submit("job3",new String[]{"VIDEO ENCODING"},()->"clip.mp4");
+        System.out.println(thumbnail.get()+" "+video.get()); // completed after jobCompleted
+        executor.shutdown();
     }
 }
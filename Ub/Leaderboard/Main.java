@@ -1,62 +1,359 @@
 import java.util.*; // import utility classes
+import java.util.concurrent.*; // concurrent collections and executors
+import java.util.concurrent.atomic.*; // atomic counters
+import java.util.concurrent.locks.*; // explicit locks
 class User{
     String userId; // user identifier
-    Set<String> playerIds; // players in team
     int score; // current team score
-    public User(String userId,Set<String> playerIds,int score){this.userId=userId;this.playerIds=playerIds;this.score=score;} // constructor
+    public User(String userId,int score){this.userId=userId;this.score=score;} // constructor
 }
-class Leaderboard{
-    private Map<String,Integer> playerScores; // map of player to cumulative score
-    private Map<String,User> users; // map of userId to User
-    private Map<String,Set<String>> playerToUsers; // reverse mapping player -> users
-    private TreeSet<User> ranking; // sorted leaderboard
-    public Leaderboard(){
-        this.playerScores=new HashMap<>(); // initialize player score map
-        this.users=new HashMap<>(); // initialize user map
-        this.playerToUsers=new HashMap<>(); // initialize reverse map
-        this.ranking=new TreeSet<>((a,b)->{ // custom comparator
-            if(a.score!=b.score)return Integer.compare(b.score,a.score); // score descending
-            return a.userId.compareTo(b.userId); // tie-break lex ascending
-        });
+// ================= STRING INTERNER =================
+// open-addressed String -> dense int table, no per-entry node or boxed objects
+class StringInterner{
+    private int[] slots; // hash slots holding id+1 (0 = empty)
+    private String[] names; // dense id -> string
+    private int size; // number of interned strings
+    public StringInterner(){
+        this.slots=new int[16]; // initial table
+        this.names=new String[8]; // initial id space
+    }
+    public int size(){return size;} // number of ids handed out
+    public String name(int id){return names[id];} // reverse lookup
+    private static int mix(int h){return h^(h>>>16);} // spread hash bits
+    // Time Complexity: O(1) expected, -1 if absent
+    public int find(String s){
+        int mask=slots.length-1; // power of two table
+        for(int i=mix(s.hashCode())&mask;slots[i]!=0;i=(i+1)&mask) // linear probe
+            if(names[slots[i]-1].equals(s))return slots[i]-1;
+        return -1; // not interned
+    }
+    // Time Complexity: O(1) amortized
+    public int intern(String s){
+        int id=find(s); // existing id
+        if(id>=0)return id;
+        if((size+1)*2>slots.length)rehash(slots.length*2); // keep load factor <= 0.5
+        id=size++; // next dense id
+        if(id==names.length)names=Arrays.copyOf(names,names.length*2); // grow id space
+        names[id]=s; // store name
+        place(s,id); // store slot
+        return id;
+    }
+    private void place(String s,int id){
+        int mask=slots.length-1;
+        int i=mix(s.hashCode())&mask;
+        while(slots[i]!=0)i=(i+1)&mask; // find free slot
+        slots[i]=id+1;
+    }
+    private void rehash(int capacity){ // O(N)
+        slots=new int[capacity]; // fresh table
+        for(int id=0;id<size;id++)place(names[id],id); // reinsert all ids
+    }
+}
+// ================= PLAYER -> USER INDEX =================
+// compacted teams live in CSR form (offsets/edges); new teams go to a linked delta
+// that is folded into the CSR arrays once it grows past a fraction of the edge count
+class PlayerUserIndex{
+    private static final int MIN_DELTA=1<<16; // smallest delta worth compacting
+    private int[] offsets; // player -> start in edges, length = compacted players + 1
+    int[] edges; // user ids, grouped by shard within each player
+    private int[] deltaHead; // player -> first delta slot + 1 (0 = none)
+    int[] deltaNext; // delta slot -> next slot of same player (-1 = end)
+    int[] deltaUser; // delta slot -> user id
+    private int deltaSize; // number of delta edges
+    public PlayerUserIndex(){
+        this.offsets=new int[1]; // no compacted players
+        this.edges=new int[0]; // no compacted edges
+        this.deltaHead=new int[16]; // initial player capacity
+        this.deltaNext=new int[16]; // initial delta capacity
+        this.deltaUser=new int[16];
+    }
+    public int csrStart(int player){return player<offsets.length-1?offsets[player]:0;} // O(1)
+    public int csrEnd(int player){return player<offsets.length-1?offsets[player+1]:0;} // O(1)
+    public int deltaFirst(int player){return player<deltaHead.length?deltaHead[player]-1:-1;} // O(1)
+    // Time Complexity: O(1) amortized
+    public void addEdge(int player,int user){
+        if(player>=deltaHead.length)deltaHead=Arrays.copyOf(deltaHead,Math.max(player+1,deltaHead.length*2)); // grow players
+        if(deltaSize==deltaUser.length){ // grow delta
+            deltaNext=Arrays.copyOf(deltaNext,deltaSize*2);
+            deltaUser=Arrays.copyOf(deltaUser,deltaSize*2);
+        }
+        deltaUser[deltaSize]=user; // store edge
+        deltaNext[deltaSize]=deltaHead[player]-1; // link to previous head
+        deltaHead[player]=++deltaSize; // new head (slot + 1)
     }
-    public synchronized void addUser(String userId,List<String> playerIds){ // O(P log N)
-        if(users.containsKey(userId))return; // ignore duplicate user
-        Set<String> team=new HashSet<>(playerIds); // create team set
-        int totalScore=0; // initialize team score
-        for(String playerId:team){ // iterate players
-            int playerScore=playerScores.getOrDefault(playerId,0); // fetch existing score
-            totalScore+=playerScore; // accumulate
-            playerToUsers.putIfAbsent(playerId,new HashSet<>()); // ensure reverse map exists
-            playerToUsers.get(playerId).add(userId); // map player to this user
+    public boolean needsCompaction(){return deltaSize>=Math.max(MIN_DELTA,edges.length>>2);} // O(1)
+    // ================= COMPACT =================
+    // Time Complexity: O(P + E log D) where D = largest per-player degree
+    public void compact(int playerCount,int[] userShard){
+        int[] newOffsets=new int[playerCount+1]; // fresh offsets
+        for(int p=0;p<playerCount;p++){ // count degree per player
+            int degree=csrEnd(p)-csrStart(p);
+            for(int d=deltaFirst(p);d>=0;d=deltaNext[d])degree++;
+            newOffsets[p+1]=newOffsets[p]+degree; // prefix sum
         }
-        User user=new User(userId,team,totalScore); // create user
-        users.put(userId,user); // store user
-        ranking.add(user); // insert into leaderboard
-    }
-    public synchronized void addScore(String playerId,int delta){ // O(U log N)
-        int newScore=playerScores.getOrDefault(playerId,0)+delta; // update player score
-        playerScores.put(playerId,newScore); // store updated score
-        Set<String> affectedUsers=playerToUsers.getOrDefault(playerId,Collections.emptySet()); // get affected users
-        for(String userId:affectedUsers){ // update each affected user
-            User user=users.get(userId); // fetch user
+        int[] newEdges=new int[newOffsets[playerCount]]; // fresh edges
+        long[] scratch=new long[16]; // reusable sort buffer
+        for(int p=0;p<playerCount;p++){ // fill and group by shard
+            int pos=newOffsets[p];
+            int start=csrStart(p),end=csrEnd(p);
+            System.arraycopy(edges,start,newEdges,pos,end-start); // copy compacted edges
+            pos+=end-start;
+            for(int d=deltaFirst(p);d>=0;d=deltaNext[d])newEdges[pos++]=deltaUser[d]; // append delta edges
+            int degree=pos-newOffsets[p];
+            if(degree<2)continue; // nothing to order
+            if(degree>scratch.length)scratch=new long[Math.max(degree,scratch.length*2)];
+            for(int i=0;i<degree;i++){ // key = shard, then user id
+                int u=newEdges[newOffsets[p]+i];
+                scratch[i]=((long)userShard[u]<<32)|u;
+            }
+            Arrays.sort(scratch,0,degree);
+            for(int i=0;i<degree;i++)newEdges[newOffsets[p]+i]=(int)scratch[i];
+        }
+        offsets=newOffsets; // publish compacted arrays
+        edges=newEdges;
+        Arrays.fill(deltaHead,0); // clear delta
+        deltaSize=0;
+    }
+}
+// ================= RANKED USER SNAPSHOT =================
+class RankedUser{
+    final String userId; // user identifier
+    final int score; // score at the time the snapshot was taken
+    public RankedUser(String userId,int score){this.userId=userId;this.score=score;} // constructor
+}
+// ================= LEADERBOARD SHARD =================
+// owns a hash partition of users with its own ranking and monitor
+class LeaderboardShard{
+    private final TreeSet<User> ranking; // sorted shard ranking
+    private static final int MAX_CACHE_K=1024; // deeper requests are served without caching
+    private volatile RankedUser[] topCache; // cached top entries (null = dirty), a trailing null when the whole shard fits
+    private int cacheK; // number of entries the cache is built for
+    public LeaderboardShard(Comparator<User> order){
+        this.ranking=new TreeSet<>(order); // initialize ranking
+        this.cacheK=10; // default cache depth
+    }
+    // true when (score,userId) ranks at or above the last cached entry
+    private static boolean reaches(int score,String userId,RankedUser last){
+        if(score!=last.score)return score>last.score; // score descending
+        return userId.compareTo(last.userId)<=0; // tie-break lex ascending
+    }
+    private void invalidateIfVisible(String userId,int oldScore,int newScore){ // O(1)
+        RankedUser[] cache=topCache; // current cache
+        if(cache==null)return; // already dirty
+        RankedUser last=cache[cache.length-1]; // cutoff entry
+        if(last==null||reaches(oldScore,userId,last)||reaches(newScore,userId,last))
+            topCache=null; // change is visible in the cached prefix
+    }
+    // Time Complexity: O(log N)
+    public synchronized void add(User user){
+        ranking.add(user); // insert into ranking
+        RankedUser[] cache=topCache; // current cache
+        if(cache!=null&&(cache[cache.length-1]==null||reaches(user.score,user.userId,cache[cache.length-1])))
+            topCache=null; // new user lands in cached prefix
+    }
+    // Time Complexity: O((to-from) log N); ids[from,to) all belong to this shard
+    public synchronized void applyDelta(int[] ids,int from,int to,int delta,User[] users){
+        for(int i=from;i<to;i++){ // update each affected user
+            User user=users[ids[i]]; // fetch user
             ranking.remove(user); // remove before modifying score
+            int oldScore=user.score; // remember previous score
             user.score+=delta; // update team score
             ranking.add(user); // reinsert to maintain ordering
+            invalidateIfVisible(user.userId,oldScore,user.score); // keep cache coherent
+        }
+    }
+    private static boolean covers(RankedUser[] cache,int k){ // k entries, or the whole shard
+        return cache!=null&&(k<=cache.length||cache[cache.length-1]==null);
+    }
+    private RankedUser[] snapshot(int depth){ // caller holds the monitor; O(min(depth, N))
+        RankedUser[] fresh=new RankedUser[(int)Math.min(depth,ranking.size()+1L)]; // trailing null = whole shard
+        int i=0; // fill index
+        for(User user:ranking){ // iterate sorted ranking
+            if(i==fresh.length)break; // stop at depth
+            fresh[i++]=new RankedUser(user.userId,user.score); // immutable copy
         }
+        return fresh;
     }
-    public synchronized List<String> getTopK(int k){ // O(K)
+    // Time Complexity: O(1) on cache hit, O(min(K, N)) on rebuild
+    public RankedUser[] topK(int k){
+        RankedUser[] cache=topCache; // lock-free read
+        if(covers(cache,k))return cache; // cache hit
+        synchronized(this){
+            if(covers(topCache,k))return topCache; // rebuilt by another reader
+            if(k>MAX_CACHE_K)return snapshot(k); // one-off deep read, cache depth unchanged
+            cacheK=Math.max(cacheK,k); // grow cache depth on demand, bounded
+            RankedUser[] fresh=snapshot(cacheK); // new snapshot
+            topCache=fresh; // publish snapshot
+            return fresh;
+        }
+    }
+}
+// ================= SHARDED LEADERBOARD =================
+class Leaderboard{
+    private static final Comparator<User> ORDER=(a,b)->{ // custom comparator
+        if(a.score!=b.score)return Integer.compare(b.score,a.score); // score descending
+        return a.userId.compareTo(b.userId); // tie-break lex ascending
+    };
+    private Map<String,Integer> playerScores; // map of player to cumulative score
+    private StringInterner players; // playerId -> dense int
+    private StringInterner userIds; // userId -> dense int
+    private User[] users; // dense user id -> User
+    private int[] userShard; // dense user id -> owning shard
+    private PlayerUserIndex playerToUsers; // reverse mapping player -> users
+    private LeaderboardShard[] shards; // hash partitions of users
+    private ReadWriteLock membership; // write: addUser, read: addScore
+    public Leaderboard(){this(Runtime.getRuntime().availableProcessors());} // one shard per core
+    public Leaderboard(int shardCount){
+        if(shardCount<1)throw new IllegalArgumentException("shardCount must be positive"); // validation
+        this.playerScores=new ConcurrentHashMap<>(); // initialize player score map
+        this.players=new StringInterner(); // initialize player ids
+        this.userIds=new StringInterner(); // initialize user ids
+        this.users=new User[16]; // initialize user table
+        this.userShard=new int[16]; // initialize shard table
+        this.playerToUsers=new PlayerUserIndex(); // initialize reverse map
+        this.shards=new LeaderboardShard[shardCount]; // create shard array
+        for(int i=0;i<shardCount;i++)shards[i]=new LeaderboardShard(ORDER); // initialize shards
+        this.membership=new ReentrantReadWriteLock(); // initialize membership lock
+    }
+    // Time Complexity: O(P log P + log N) amortized
+    // exclusive so that a new team never observes a half-applied addScore
+    public void addUser(String userId,List<String> playerIds){
+        membership.writeLock().lock();
+        try{
+            if(userIds.find(userId)>=0)return; // ignore duplicate user
+            int[] team=new int[playerIds.size()]; // interned players
+            for(int i=0;i<team.length;i++)team[i]=players.intern(playerIds.get(i));
+            Arrays.sort(team); // group duplicates
+            int uid=userIds.intern(userId); // dense user id
+            if(uid==users.length){ // grow user tables
+                users=Arrays.copyOf(users,uid*2);
+                userShard=Arrays.copyOf(userShard,uid*2);
+            }
+            int totalScore=0; // initialize team score
+            for(int i=0;i<team.length;i++){ // iterate distinct players
+                if(i>0&&team[i]==team[i-1])continue; // skip duplicate player
+                totalScore+=playerScores.getOrDefault(players.name(team[i]),0); // accumulate existing score
+                playerToUsers.addEdge(team[i],uid); // map player to this user
+            }
+            User user=new User(userId,totalScore); // create user
+            users[uid]=user; // store user
+            userShard[uid]=Math.floorMod(userId.hashCode(),shards.length); // hash partition
+            shards[userShard[uid]].add(user); // insert into owning shard
+            if(playerToUsers.needsCompaction())playerToUsers.compact(players.size(),userShard); // fold delta into CSR
+        }finally{
+            membership.writeLock().unlock();
+        }
+    }
+    // Time Complexity: O(U log N)
+    // shared with other addScore calls; each shard is locked once per run of its users
+    public void addScore(String playerId,int delta){
+        membership.readLock().lock();
+        try{
+            playerScores.merge(playerId,delta,Integer::sum); // update player score atomically
+            int p=players.find(playerId); // stable under read lock
+            if(p<0)return; // player not on any team
+            int[] edges=playerToUsers.edges; // compacted users, grouped by shard
+            int end=playerToUsers.csrEnd(p);
+            for(int i=playerToUsers.csrStart(p);i<end;){ // one lock per shard run
+                int s=userShard[edges[i]];
+                int j=i+1;
+                while(j<end&&userShard[edges[j]]==s)j++;
+                shards[s].applyDelta(edges,i,j,delta,users);
+                i=j;
+            }
+            int[] deltaUser=playerToUsers.deltaUser; // recently added users
+            for(int d=playerToUsers.deltaFirst(p);d>=0;d=playerToUsers.deltaNext[d])
+                shards[userShard[deltaUser[d]]].applyDelta(deltaUser,d,d+1,delta,users);
+        }finally{
+            membership.readLock().unlock();
+        }
+    }
+    // ================= GLOBAL TOP K =================
+    // Time Complexity: O(S + K log S) with warm shard caches
+    // shards are read independently, so the merge is not an atomic cross-shard snapshot
+    public List<String> getTopK(int k){
         List<String> result=new ArrayList<>(); // result list
-        int count=0; // counter
-        for(User user:ranking){ // iterate sorted leaderboard
-            if(count==k)break; // stop at k
-            result.add(user.userId); // add userId
-            count++; // increment counter
+        if(k<=0)return result; // nothing requested
+        RankedUser[][] tops=new RankedUser[shards.length][]; // per-shard top-k
+        PriorityQueue<int[]> heap=new PriorityQueue<>((a,b)->{ // cursor = {shard, position}
+            RankedUser x=tops[a[0]][a[1]],y=tops[b[0]][b[1]];
+            if(x.score!=y.score)return Integer.compare(y.score,x.score); // score descending
+            return x.userId.compareTo(y.userId); // tie-break lex ascending
+        });
+        for(int s=0;s<shards.length;s++){ // seed heap with each shard head
+            tops[s]=shards[s].topK(k); // cached or rebuilt
+            if(tops[s][0]!=null)heap.offer(new int[]{s,0});
+        }
+        while(result.size()<k&&!heap.isEmpty()){ // k-way merge
+            int[] cursor=heap.poll(); // best remaining entry
+            result.add(tops[cursor[0]][cursor[1]].userId); // add userId
+            int next=cursor[1]+1; // advance within shard
+            if(next<k&&next<tops[cursor[0]].length&&tops[cursor[0]][next]!=null){
+                cursor[1]=next;
+                heap.offer(cursor); // reuse cursor
+            }
         }
         return result; // return result
     }
 }
+// ================= BENCHMARK =================
+// 95% getTopK(10) / 5% addScore on all cores, single shard vs one shard per core
+class LeaderboardBenchmark{
+    private static final int USERS=200_000; // number of teams
+    private static final int PLAYERS=50_000; // player pool
+    private static final int TEAM_SIZE=5; // players per team
+    private static final long WARMUP_MS=1_000; // warmup per run
+    private static final long MEASURE_MS=3_000; // measurement per run
+    private static Leaderboard build(int shardCount){ // O(U × P)
+        Leaderboard lb=new Leaderboard(shardCount); // create leaderboard
+        Random random=new Random(42); // deterministic teams
+        for(int u=0;u<USERS;u++){ // register teams
+            List<String> team=new ArrayList<>(TEAM_SIZE);
+            for(int p=0;p<TEAM_SIZE;p++)team.add("P"+random.nextInt(PLAYERS));
+            lb.addUser("U"+u,team);
+        }
+        return lb;
+    }
+    private static long runFor(Leaderboard lb,int threads,long millis) throws InterruptedException{
+        LongAdder ops=new LongAdder(); // completed operations
+        AtomicBoolean running=new AtomicBoolean(true); // stop flag
+        Thread[] workers=new Thread[threads];
+        for(int t=0;t<threads;t++){
+            workers[t]=new Thread(()->{
+                ThreadLocalRandom random=ThreadLocalRandom.current();
+                while(running.get()){
+                    if(random.nextInt(100)<95)lb.getTopK(10); // read
+                    else lb.addScore("P"+random.nextInt(PLAYERS),random.nextInt(-5,11)); // write
+                    ops.increment();
+                }
+            });
+            workers[t].start();
+        }
+        Thread.sleep(millis); // let workers run
+        running.set(false);
+        for(Thread worker:workers)worker.join();
+        return ops.sum();
+    }
+    private static long usedHeap(){ // approximate live heap
+        Runtime rt=Runtime.getRuntime();
+        for(int i=0;i<3;i++)System.gc(); // settle collector
+        return rt.totalMemory()-rt.freeMemory();
+    }
+    public static void run() throws InterruptedException{
+        int threads=Runtime.getRuntime().availableProcessors(); // saturate all cores
+        for(int shardCount:new int[]{1,threads}){
+            long before=usedHeap(); // baseline heap
+            Leaderboard lb=build(shardCount);
+            System.out.printf("shards=%d heap after build=%,d KB%n",shardCount,(usedHeap()-before)/1024);
+            runFor(lb,threads,WARMUP_MS); // JIT warmup
+            long ops=runFor(lb,threads,MEASURE_MS); // measured run
+            System.out.printf("shards=%d threads=%d ops/s=%,d%n",shardCount,threads,ops*1000/MEASURE_MS);
+        }
+    }
+}
 public class Main{
-    public static void main(String[] args){
+    public static void main(String[] args) throws InterruptedException{
+        if(args.length>0&&"bench".equals(args[0])){LeaderboardBenchmark.run();return;} // run benchmark
         Leaderboard lb=new Leaderboard(); // create leaderboard
         lb.addUser("Alice",Arrays.asList("P1","P2")); // add user Alice
         lb.addUser("Bob",Arrays.asList("P2","P3")); // add user Bob
@@ -68,4 +365,4 @@ public class Main{
         lb.addScore("P2",-3); // negative update
         System.out.println(lb.getTopK(2)); // print top 2 users
     }
-}
\ No newline at end of file
+}
@@ -1,61 +1,1278 @@
+import java.io.*; // IO exceptions
+import java.nio.*; // byte buffers
+import java.nio.channels.*; // file channels
+import java.nio.charset.*; // UTF-8 encoding
+import java.nio.file.*; // segment files
 import java.util.*; // import utility classes
+import java.util.concurrent.*; // background compression
+import java.util.concurrent.atomic.*; // atomic sequences
+import java.util.zip.*; // block compression
+import java.util.concurrent.locks.*; // parking
+import java.util.function.*; // id lookups
 enum LogLevel{DEBUG,INFO,WARN,ERROR} // define log levels
+// ================= MESSAGE FORMATTER =================
+// SLF4J-style "{}" substitution; missing arguments leave "{}", extra arguments are ignored
+class MessageFormatter{
+    private static final ThreadLocal<StringBuilder> BUFFER=ThreadLocal.withInitial(()->new StringBuilder(256)); // reused per thread
+    // Time Complexity: O(template length + rendered args)
+    public static void formatTo(StringBuilder sb,String template,Object[] args){
+        int from=0,arg=0;
+        while(true){
+            int at=arg<args.length?template.indexOf("{}",from):-1; // next placeholder
+            if(at<0){sb.append(template,from,template.length());return;}
+            sb.append(template,from,at);
+            Object value=args[arg++];
+            if(value instanceof Long)sb.append(((Long)value).longValue()); // no String.valueOf
+            else if(value instanceof Integer)sb.append(((Integer)value).intValue());
+            else if(value instanceof Double)sb.append(((Double)value).doubleValue());
+            else sb.append(value);
+            from=at+2;
+        }
+    }
+    public static String format(String template,Object[] args){ // O(template length + rendered args)
+        StringBuilder sb=BUFFER.get();
+        sb.setLength(0); // reuse buffer
+        formatTo(sb,template,args);
+        return sb.toString();
+    }
+}
 class LogEntry{
     private LogLevel level; // log level
-    private String message; // log message
+    private volatile String message; // rendered message (null until first needed)
+    private String template; // message template
+    private Object[] args; // template arguments (null = plain message)
     private long timestamp; // creation time
     public LogEntry(LogLevel level,String message){
+        this(level,message,System.currentTimeMillis()); // stamp now
+    }
+    public LogEntry(LogLevel level,String message,long timestamp){
         this.level=level; // assign level
         this.message=message; // assign message
-        this.timestamp=System.currentTimeMillis(); // store timestamp
+        this.template=message;
+        this.timestamp=timestamp; // store timestamp
+    }
+    // formatting is deferred until getMessage / renderTo
+    public LogEntry(LogLevel level,String template,Object[] args,long timestamp){
+        this.level=level; // assign level
+        this.template=template; // assign template
+        this.args=args; // assign arguments
+        this.timestamp=timestamp; // store timestamp
     }
     public LogLevel getLevel(){return level;} // return level
-    public String getMessage(){return message;} // return message
+    public String getMessage(){ // render once, then cached
+        String m=message;
+        if(m==null)message=m=MessageFormatter.format(template,args);
+        return m;
+    }
+    LogEntry restamp(long timestamp){ // same entry, later time, still unformatted
+        LogEntry copy=args==null?new LogEntry(level,template,timestamp):new LogEntry(level,template,args,timestamp);
+        copy.message=message;
+        return copy;
+    }
     public long getTimestamp(){return timestamp;} // return timestamp
+    public void renderTo(StringBuilder sb){ // printable log format without intermediate strings
+        sb.append('[').append(level).append("] ").append(timestamp).append(" : ");
+        String m=message;
+        if(m!=null)sb.append(m);
+        else MessageFormatter.formatTo(sb,template,args);
+    }
     public String toString(){ // printable log format
-        return "["+level+"] "+timestamp+" : "+message;
+        StringBuilder sb=new StringBuilder();
+        renderTo(sb);
+        return sb.toString();
     }
 }
-class Logger{
-    private Map<LogLevel,List<LogEntry>> logsByLevel; // level -> logs
-    private List<LogEntry> allLogs; // maintain full history
-    public Logger(){
+// ================= OUTPUT SINK =================
+interface LogSink{
+    void write(List<LogEntry> batch); // consumer thread in async mode, caller threads otherwise
+}
+class ConsoleLogSink implements LogSink{
+    private final StringBuilder lines=new StringBuilder(4096); // reused output buffer
+    public synchronized void write(List<LogEntry> batch){ // one print per batch
+        lines.setLength(0);
+        for(LogEntry entry:batch){
+            entry.renderTo(lines);
+            lines.append(System.lineSeparator());
+        }
+        System.out.print(lines);
+    }
+}
+// ================= OVERFLOW POLICY =================
+enum OverflowPolicy{
+    BLOCK, // wait for the consumer to free a slot
+    DROP, // discard the entry and count it
+    DROP_BELOW_WARN // discard DEBUG/INFO, block for WARN/ERROR
+}
+// ================= RING SLOT =================
+// preallocated and reused; fields are written by one producer, then published by sequence.
+// up to two arguments are carried unboxed so the producer allocates nothing
+class LogSlot{
+    static final byte NONE=0,OBJECT=1,LONG=2,DOUBLE=3; // argument kinds
+    LogLevel level; // log level
+    String template; // message template
+    byte kind0,kind1; // argument kinds
+    Object object0,object1; // reference arguments
+    long bits0,bits1; // primitive arguments (doubles as raw bits)
+    Object[] extra; // varargs call (kinds unused)
+    long timestamp; // producer-side time
+    private static Object box(byte kind,Object object,long bits){ // consumer-side boxing
+        if(kind==LONG)return bits;
+        if(kind==DOUBLE)return Double.longBitsToDouble(bits);
+        return object;
+    }
+    // Time Complexity: O(args); null when the call carried no arguments
+    static Object[] toArgs(byte kind0,Object object0,long bits0,byte kind1,Object object1,long bits1,Object[] extra){
+        if(extra!=null)return extra;
+        if(kind0==NONE)return null;
+        if(kind1==NONE)return new Object[]{box(kind0,object0,bits0)};
+        return new Object[]{box(kind0,object0,bits0),box(kind1,object1,bits1)};
+    }
+}
+// ================= ASYNC RING BUFFER =================
+// Disruptor-style multi-producer / single-consumer ring: producers claim a sequence,
+// fill the slot for it and publish; one consumer thread drains contiguous batches.
+// close() sets a bit in the claim counter, so every sequence handed out before it is drained
+// and every publish after it fails fast
+class AsyncLogRing{
+    private static final int MAX_BATCH=1024; // entries handed to the logger at once
+    private static final long CLOSED=1L<<62; // claim bit set by close()
+    private static final int IDLE_SPINS=64; // empty polls before the consumer parks
+    private final LogSlot[] slots; // preallocated entries
+    private final AtomicLongArray published; // slot -> sequence last published into it
+    private final int mask; // capacity - 1
+    private final AtomicLong claim; // next sequence to hand out, | CLOSED once closed
+    private volatile long consumed; // sequences below this are free again
+    private final OverflowPolicy policy; // what to do when full
+    private final LongAdder dropped; // discarded entries
+    private final Logger target; // receives drained batches
+    private final Thread consumer; // single consumer
+    private volatile boolean stopped; // consumer has exited
+    private volatile boolean sleeping; // consumer is parked on an empty ring, producers unpark it
+    public AsyncLogRing(int capacity,OverflowPolicy policy,Logger target){
+        if(Integer.bitCount(capacity)!=1)throw new IllegalArgumentException("capacity must be a power of two"); // validation
+        this.slots=new LogSlot[capacity]; // allocate ring
+        for(int i=0;i<capacity;i++)slots[i]=new LogSlot();
+        this.published=new AtomicLongArray(capacity);
+        for(int i=0;i<capacity;i++)published.set(i,-1); // nothing published yet
+        this.mask=capacity-1;
+        this.claim=new AtomicLong();
+        this.policy=policy;
+        this.dropped=new LongAdder();
+        this.target=target;
+        this.consumer=new Thread(this::drainLoop,"logger-consumer"); // background writer
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+    public long getDroppedCount(){return dropped.sum();} // O(stripes)
+    // ================= PUBLISH =================
+    // Time Complexity: O(1) unless the ring is full and the policy blocks
+    public void publish(LogLevel level,String template,byte kind0,Object object0,long bits0,
+                        byte kind1,Object object1,long bits1,Object[] extra,long timestamp){
+        boolean mayDrop=policy==OverflowPolicy.DROP||
+                (policy==OverflowPolicy.DROP_BELOW_WARN&&level.compareTo(LogLevel.WARN)<0);
+        long seq;
+        do{
+            seq=claim.get();
+            if((seq&CLOSED)!=0)throw new IllegalStateException("Logger is closed"); // fail fast
+            if(mayDrop&&seq-consumed>mask){dropped.increment();return;} // ring full → drop
+        }while(!claim.compareAndSet(seq,seq+1));
+        for(int spins=0;seq-consumed>mask;spins++){ // BLOCK: wait for the slot to be freed
+            if(stopped)throw new IllegalStateException("Logger consumer has stopped");
+            if(spins<100)Thread.onSpinWait();
+            else LockSupport.parkNanos(1_000);
+        }
+        LogSlot slot=slots[(int)seq&mask]; // reuse slot
+        slot.level=level;
+        slot.template=template;
+        slot.kind0=kind0;slot.object0=object0;slot.bits0=bits0;
+        slot.kind1=kind1;slot.object1=object1;slot.bits1=bits1;
+        slot.extra=extra;
+        slot.timestamp=timestamp;
+        published.set((int)seq&mask,seq); // volatile publish
+        if(sleeping)LockSupport.unpark(consumer); // read after the publish: the consumer sees the slot or us
+    }
+    // ================= CONSUMER =================
+    // a failing sink or store is reported and its batch skipped; the consumer keeps draining
+    private void drainLoop(){
+        long next=0; // next sequence to consume
+        List<LogEntry> batch=new ArrayList<>(MAX_BATCH); // reused batch list
+        int idle=0; // consecutive empty polls
+        try{
+            for(long c=claim.get();(c&CLOSED)==0||next<(c&~CLOSED);c=claim.get()){ // until closed and drained
+                while(batch.size()<MAX_BATCH&&published.get((int)(next+batch.size())&mask)==next+batch.size()){
+                    LogSlot slot=slots[(int)(next+batch.size())&mask];
+                    Object[] args=LogSlot.toArgs(slot.kind0,slot.object0,slot.bits0,slot.kind1,slot.object1,slot.bits1,slot.extra);
+                    batch.add(args==null?new LogEntry(slot.level,slot.template,slot.timestamp)
+                            :new LogEntry(slot.level,slot.template,args,slot.timestamp)); // unformatted copy
+                    slot.template=null;slot.object0=null;slot.object1=null;slot.extra=null; // release payload
+                }
+                if(batch.isEmpty()){ // idle: spin briefly, then park until a publish or close() unparks
+                    if(++idle<IDLE_SPINS){Thread.onSpinWait();continue;}
+                    sleeping=true; // written before the re-check, so a producer publishing now sees it
+                    if(published.get((int)next&mask)!=next&&(claim.get()&CLOSED)==0)LockSupport.park(this);
+                    sleeping=false;
+                    continue;
+                }
+                idle=0;
+                try{
+                    target.append(batch); // index + sink
+                }catch(RuntimeException e){
+                    System.err.println("Log batch of "+batch.size()+" entries failed: "+e); // report, keep consuming
+                }
+                next+=batch.size();
+                consumed=next; // free slots for producers
+                batch.clear();
+            }
+        }finally{
+            stopped=true; // release blocked producers and flushers
+        }
+    }
+    // ================= FLUSH / CLOSE =================
+    // Time Complexity: waits until everything claimed before the call has been indexed
+    public void flush(){
+        long target=claim.get()&~CLOSED;
+        while(consumed<target){
+            if(stopped)throw new IllegalStateException("Logger consumer has stopped");
+            LockSupport.parkNanos(50_000);
+        }
+    }
+    public void close() throws InterruptedException{
+        long c;
+        do{
+            c=claim.get();
+        }while((c&CLOSED)==0&&!claim.compareAndSet(c,c|CLOSED)); // no claims from here on
+        LockSupport.unpark(consumer); // wake an idle consumer to drain and exit
+        consumer.join(); // consumer drains the rest and exits
+    }
+}
+// ================= LOG CHUNK =================
+// fixed-size block of entries in timestamp order
+class LogChunk{
+    final LogEntry[] entries; // slots, filled left to right
+    int size; // used slots
+    long minTs; // first timestamp
+    long maxTs; // last timestamp
+    public LogChunk(int capacity){this.entries=new LogEntry[capacity];} // constructor
+}
+// ================= CHUNKED LOG =================
+// append-only, time-ordered list of chunks; range queries binary-search to the first
+// chunk and stream lazily. Appends need the owner's lock; views are safe to iterate outside it
+class ChunkedLog{
+    private static final int CHUNK_SIZE=4096; // entries per chunk
+    private LogChunk[] chunks; // grows by copy so published views keep their array
+    private int chunkCount; // chunks in use
+    public ChunkedLog(){this.chunks=new LogChunk[8];} // constructor
+    // Time Complexity: O(1) amortized; timestamps must be non-decreasing
+    public void add(LogEntry entry){
+        LogChunk last=chunkCount==0?null:chunks[chunkCount-1];
+        if(last==null||last.size==CHUNK_SIZE){ // open a new chunk
+            if(chunkCount==chunks.length)chunks=Arrays.copyOf(chunks,chunkCount*2);
+            last=new LogChunk(CHUNK_SIZE);
+            last.minTs=entry.getTimestamp();
+            chunks[chunkCount++]=last;
+        }
+        last.entries[last.size++]=entry; // append
+        last.maxTs=entry.getTimestamp();
+    }
+    public int size(){return chunkCount==0?0:(chunkCount-1)*CHUNK_SIZE+chunks[chunkCount-1].size;} // O(1)
+    // Time Complexity: O(log C + log CHUNK_SIZE) to position, O(1) per entry streamed
+    public Iterable<LogEntry> range(long startTime,long endTime){
+        LogChunk[] view=chunks; // snapshot under the owner's lock
+        int count=chunkCount;
+        int lastSize=count==0?0:view[count-1].size;
+        int lo=0,hi=count; // first chunk whose maxTs >= startTime
+        while(lo<hi){
+            int mid=(lo+hi)>>>1;
+            if(view[mid].maxTs<startTime)lo=mid+1;
+            else hi=mid;
+        }
+        int firstChunk=lo;
+        int firstPos=0;
+        if(firstChunk<count&&view[firstChunk].minTs>endTime)firstChunk=count; // range falls between chunks
+        if(firstChunk<count){ // first entry >= startTime inside that chunk
+            LogChunk c=view[firstChunk];
+            int limit=firstChunk==count-1?lastSize:c.size;
+            int l=0,h=limit;
+            while(l<h){
+                int mid=(l+h)>>>1;
+                if(c.entries[mid].getTimestamp()<startTime)l=mid+1;
+                else h=mid;
+            }
+            firstPos=l;
+        }
+        final int startChunk=firstChunk,startPos=firstPos;
+        return ()->new Iterator<LogEntry>(){
+            int chunk=startChunk; // current chunk
+            int pos=startPos; // position within chunk
+            private int limit(){return chunk==count-1?lastSize:view[chunk].size;} // visible entries
+            public boolean hasNext(){
+                while(chunk<count&&pos>=limit()){chunk++;pos=0;} // skip exhausted chunks
+                return chunk<count&&view[chunk].entries[pos].getTimestamp()<=endTime;
+            }
+            public LogEntry next(){
+                if(!hasNext())throw new NoSuchElementException();
+                return view[chunk].entries[pos++];
+            }
+        };
+    }
+    public Iterable<LogEntry> all(){return range(Long.MIN_VALUE,Long.MAX_VALUE);} // full view
+    public LongFunction<LogEntry> lookup(){ // position -> entry, O(1); snapshot like range
+        LogChunk[] view=chunks;
+        long size=size();
+        return id->id<0||id>=size?null:view[(int)(id/CHUNK_SIZE)].entries[(int)(id%CHUNK_SIZE)];
+    }
+}
+// ================= LOG STORE =================
+// where indexed entries live; append and range are called under the Logger's lock,
+// the returned views are iterated outside it. level == null means every level.
+// entry ids are append positions (0, 1, 2, ...) and stay valid until retention drops the entry
+interface LogStore{
+    long append(LogEntry entry); // timestamps are non-decreasing; returns the entry id
+    Iterable<LogEntry> range(LogLevel level,long startTime,long endTime); // lazy view
+    LongFunction<LogEntry> lookup(); // id -> entry snapshot view, null once expired
+    default long firstId(){return 0;} // oldest id still retained
+    void close(); // release resources
+}
+// ================= IN-MEMORY STORE =================
+class MemoryLogStore implements LogStore{
+    private Map<LogLevel,ChunkedLog> logsByLevel; // level -> logs
+    private ChunkedLog allLogs; // maintain full history
+    public MemoryLogStore(){
         this.logsByLevel=new HashMap<>(); // initialize map
-        this.allLogs=new ArrayList<>(); // initialize list
+        this.allLogs=new ChunkedLog(); // initialize list
         for(LogLevel level:LogLevel.values()) // create bucket for each level
-            logsByLevel.put(level,new ArrayList<>());
+            logsByLevel.put(level,new ChunkedLog());
     }
-
-    public synchronized void log(LogLevel level,String message){ // thread safe append
-        LogEntry entry=new LogEntry(level,message); // create log
-        logsByLevel.get(level).add(entry); // add to level bucket
+    public long append(LogEntry entry){ // O(1) amortized
+        logsByLevel.get(entry.getLevel()).add(entry); // add to level bucket
         allLogs.add(entry); // add to global list
+        return allLogs.size()-1; // position in full history
+    }
+    public Iterable<LogEntry> range(LogLevel level,long startTime,long endTime){ // O(log N) to position
+        return (level==null?allLogs:logsByLevel.get(level)).range(startTime,endTime);
+    }
+    public LongFunction<LogEntry> lookup(){return allLogs.lookup();} // O(1) per id
+    public void close(){} // nothing to release
+}
+// ================= LOG SEGMENT =================
+// one file of independently readable blocks. The block index (first/last timestamp,
+// level mask, file position) is the sparse index queries binary-search; compression
+// rewrites every block in place of the raw file without moving block boundaries
+class LogSegment{
+    final Path rawPath; // uncompressed file
+    private Path path; // file currently backing the blocks
+    private FileChannel channel; // read/append channel
+    private boolean compressed; // blocks are deflated
+    private boolean deleted; // dropped by retention
+    private long[] firstTs,lastTs,offset,firstId; // per block: time bounds, file position, first entry id
+    private int[] storedLength,rawLength; // per block: bytes on disk and decoded bytes
+    private byte[] levelMask; // per block: bit per LogLevel present
+    private int blockCount; // blocks written
+    private long bytes; // raw bytes written
+    public LogSegment(Path rawPath) throws IOException{
+        this.rawPath=rawPath; // assign path
+        this.path=rawPath;
+        this.channel=FileChannel.open(rawPath,StandardOpenOption.CREATE_NEW,StandardOpenOption.READ,StandardOpenOption.WRITE);
+        this.firstTs=new long[64];this.lastTs=new long[64];this.offset=new long[64];this.firstId=new long[64]; // block index
+        this.storedLength=new int[64];this.rawLength=new int[64];this.levelMask=new byte[64];
+    }
+    public synchronized int blockCount(){return blockCount;} // O(1)
+    public synchronized long bytes(){return bytes;} // O(1)
+    public synchronized long firstTs(int block){return firstTs[block];} // O(1)
+    public synchronized long lastTs(int block){return lastTs[block];} // O(1)
+    public synchronized long firstId(int block){return firstId[block];} // O(1)
+    public synchronized boolean hasLevel(int block,LogLevel level){return level==null||(levelMask[block]>>level.ordinal()&1)!=0;} // O(1)
+    // Time Complexity: O(block bytes); called by the active writer only
+    public synchronized void appendBlock(ByteBuffer data,long first,long last,long id,int mask) throws IOException{
+        if(blockCount==firstTs.length){ // grow block index
+            int n=blockCount*2;
+            firstTs=Arrays.copyOf(firstTs,n);lastTs=Arrays.copyOf(lastTs,n);offset=Arrays.copyOf(offset,n);firstId=Arrays.copyOf(firstId,n);
+            storedLength=Arrays.copyOf(storedLength,n);rawLength=Arrays.copyOf(rawLength,n);levelMask=Arrays.copyOf(levelMask,n);
+        }
+        int length=data.remaining();
+        long position=bytes;
+        while(data.hasRemaining())position+=channel.write(data,position); // positional batch write
+        firstTs[blockCount]=first;lastTs[blockCount]=last;offset[blockCount]=bytes;firstId[blockCount]=id;
+        storedLength[blockCount]=length;rawLength[blockCount]=length;levelMask[blockCount]=(byte)mask;
+        blockCount++;
+        bytes+=length;
+    }
+    // Time Complexity: O(block bytes); null once retention removed the segment
+    public synchronized ByteBuffer readBlock(int block) throws IOException{
+        if(deleted)return null; // dropped by retention
+        ByteBuffer stored=ByteBuffer.allocate(storedLength[block]);
+        long position=offset[block];
+        while(stored.hasRemaining()){
+            int n=channel.read(stored,position);
+            if(n<0)throw new EOFException("Truncated block "+block+" in "+path);
+            position+=n;
+        }
+        if(!compressed)return stored.flip(); // raw records
+        Inflater inflater=new Inflater();
+        try{
+            inflater.setInput(stored.array());
+            byte[] raw=new byte[rawLength[block]];
+            int n=0;
+            while(n<raw.length){
+                int got=inflater.inflate(raw,n,raw.length-n);
+                if(got==0&&(inflater.finished()||inflater.needsInput()||inflater.needsDictionary())) // stream ended short
+                    throw new IOException("Corrupt block "+block+" in "+path+": "+n+" of "+raw.length+" bytes");
+                n+=got;
+            }
+            return ByteBuffer.wrap(raw);
+        }catch(DataFormatException e){
+            throw new IOException("Corrupt block "+block+" in "+path,e);
+        }finally{
+            inflater.end(); // release native memory
+        }
+    }
+    // ================= COMPRESS =================
+    // runs on the compression thread after the segment is sealed
+    public void compress() throws IOException{
+        int blocks=blockCount();
+        Path target=Paths.get(rawPath+".z");
+        long[] newOffset=new long[blocks];
+        int[] newLength=new int[blocks];
+        Deflater deflater=new Deflater(Deflater.BEST_SPEED);
+        try(FileChannel out=FileChannel.open(target,StandardOpenOption.CREATE,StandardOpenOption.WRITE,StandardOpenOption.TRUNCATE_EXISTING)){
+            byte[] buffer=new byte[64*1024];
+            long position=0;
+            for(int b=0;b<blocks;b++){ // deflate block by block
+                ByteBuffer raw=readBlock(b);
+                if(raw==null)break; // deleted meanwhile, cleaned up below
+                deflater.reset();
+                deflater.setInput(raw.array(),raw.position(),raw.remaining());
+                deflater.finish();
+                newOffset[b]=position;
+                while(!deflater.finished()){
+                    int n=deflater.deflate(buffer);
+                    ByteBuffer chunk=ByteBuffer.wrap(buffer,0,n);
+                    while(chunk.hasRemaining())position+=out.write(chunk);
+                }
+                newLength[b]=(int)(position-newOffset[b]);
+            }
+            out.force(true); // durable before swapping
+        }finally{
+            deflater.end();
+        }
+        synchronized(this){ // swap backing file
+            if(deleted){Files.deleteIfExists(target);return;} // expired while compressing
+            channel.close();
+            channel=FileChannel.open(target,StandardOpenOption.READ);
+            path=target;
+            offset=newOffset;
+            storedLength=newLength;
+            compressed=true;
+        }
+        Files.deleteIfExists(rawPath); // raw copy no longer needed
+    }
+    public synchronized void delete() throws IOException{ // retention
+        deleted=true;
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+    public synchronized void closeChannel() throws IOException{channel.close();} // shutdown
+}
+// ================= SEGMENT STORE =================
+// entries are encoded into a write buffer and flushed as one block per batch; the active
+// segment rolls at maxSegmentBytes, sealed segments are compressed in the background
+// and only maxSegments are retained, so heap use is bounded by the block index size.
+// record: level (1 byte), timestamp delta (varint), message length (varint), UTF-8 message
+class SegmentLogStore implements LogStore{
+    private static final int BLOCK_BYTES=64*1024; // write batch = one block
+    private static final LogLevel[] LEVELS=LogLevel.values(); // ordinal -> level, not cloned per record
+    private final Path directory; // segment directory
+    private final long maxSegmentBytes; // roll threshold
+    private final int maxSegments; // retention
+    private final Deque<LogSegment> segments; // oldest first, last = active
+    private final ExecutorService compressor; // background compression
+    private ByteBuffer buffer; // pending records
+    private long blockFirstTs,prevTs; // time bounds of pending block
+    private long blockFirstId,nextId; // first id in pending block, next id to hand out
+    private int blockMask; // levels in pending block
+    private int nextSegmentId; // file name counter
+    public SegmentLogStore(Path directory,long maxSegmentBytes,int maxSegments){
+        if(maxSegments<1)throw new IllegalArgumentException("maxSegments must be positive"); // validation
+        this.directory=directory; // assign directory
+        this.maxSegmentBytes=maxSegmentBytes;
+        this.maxSegments=maxSegments;
+        this.segments=new ArrayDeque<>();
+        this.compressor=Executors.newSingleThreadExecutor(r->{
+            Thread t=new Thread(r,"log-compressor");
+            t.setDaemon(true);
+            return t;
+        });
+        this.buffer=ByteBuffer.allocate(BLOCK_BYTES);
+        try{
+            Files.createDirectories(directory);
+            segments.add(newSegment()); // first active segment
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+    // segments left by an earlier process are not reloaded; numbering starts after them
+    private LogSegment newSegment() throws IOException{
+        while(true){
+            Path path=directory.resolve(String.format("segment-%06d.log",++nextSegmentId));
+            if(!Files.exists(path)&&!Files.exists(Paths.get(path+".z")))return new LogSegment(path);
+        }
+    }
+    private static void putVarLong(ByteBuffer buf,long v){ // unsigned LEB128
+        while((v&~0x7FL)!=0){buf.put((byte)((v&0x7F)|0x80));v>>>=7;}
+        buf.put((byte)v);
+    }
+    private static long getVarLong(ByteBuffer buf){ // unsigned LEB128
+        long v=0;
+        for(int shift=0;;shift+=7){
+            byte b=buf.get();
+            v|=(long)(b&0x7F)<<shift;
+            if(b>=0)return v;
+        }
+    }
+    // Time Complexity: O(message length) amortized
+    public long append(LogEntry entry){
+        byte[] message=entry.getMessage().getBytes(StandardCharsets.UTF_8);
+        int needed=1+10+5+message.length; // worst-case record size
+        try{
+            if(buffer.remaining()<needed||segments.peekLast().bytes()+buffer.position()>=maxSegmentBytes)
+                flushBlock(); // batch full or segment due to roll
+            if(buffer.capacity()<needed)buffer=ByteBuffer.allocate(needed); // oversized record
+            if(buffer.position()==0){blockFirstTs=entry.getTimestamp();prevTs=blockFirstTs;blockFirstId=nextId;blockMask=0;} // new block
+            buffer.put((byte)entry.getLevel().ordinal());
+            putVarLong(buffer,entry.getTimestamp()-prevTs);
+            putVarLong(buffer,message.length);
+            buffer.put(message);
+            prevTs=entry.getTimestamp();
+            blockMask|=1<<entry.getLevel().ordinal();
+            return nextId++;
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+    // writes the pending block and rolls the segment if it grew past the threshold
+    private void flushBlock() throws IOException{
+        if(buffer.position()==0)return; // nothing pending
+        buffer.flip();
+        LogSegment active=segments.peekLast();
+        active.appendBlock(buffer,blockFirstTs,prevTs,blockFirstId,blockMask);
+        if(buffer.capacity()>BLOCK_BYTES)buffer=ByteBuffer.allocate(BLOCK_BYTES); // shrink after oversized record
+        buffer.clear();
+        if(active.bytes()<maxSegmentBytes)return;
+        segments.add(newSegment()); // roll
+        compressor.execute(()->{ // seal in the background
+            try{
+                active.compress();
+            }catch(IOException e){
+                System.err.println("Segment compression failed: "+e.getMessage()); // stays readable uncompressed
+            }
+        });
+        while(segments.size()>maxSegments)segments.pollFirst().delete(); // retention
+    }
+    // pending records copied out of the write buffer, so a view can outlive the next flush.
+    // queries read them from memory instead of flushing a short block per query
+    private ByteBuffer pendingSnapshot(){ // O(pending bytes), null when nothing is pending
+        return buffer.position()==0?null:ByteBuffer.wrap(Arrays.copyOf(buffer.array(),buffer.position()));
+    }
+    // Time Complexity: O(S + log B + pending bytes) to position, then one block decoded at a time
+    public Iterable<LogEntry> range(LogLevel level,long startTime,long endTime){
+        LogSegment[] view=segments.toArray(new LogSegment[0]); // snapshot
+        int[] blocks=new int[view.length];
+        for(int i=0;i<view.length;i++)blocks[i]=view[i].blockCount(); // ignore later blocks
+        ByteBuffer tail=pendingSnapshot(); // unflushed records, served after the last block
+        long tailFirstTs=blockFirstTs;
+        int tailMask=blockMask;
+        return ()->new Iterator<LogEntry>(){
+            int seg=-1; // current segment
+            int block; // current block
+            ByteBuffer data; // decoded block
+            long ts; // running timestamp inside block
+            LogEntry pending; // next matching entry
+            boolean done; // past endTime
+            private boolean nextSegment(){ // position at first block reaching startTime
+                if(++seg>=view.length)return false;
+                int lo=0,hi=blocks[seg];
+                while(lo<hi){
+                    int mid=(lo+hi)>>>1;
+                    if(view[seg].lastTs(mid)<startTime)lo=mid+1;
+                    else hi=mid;
+                }
+                block=lo-1; // advanced by nextBlock
+                return true;
+            }
+            private boolean pendingBlock(){ // runs once, after the last segment
+                if(tail==null||tailFirstTs>endTime)return false;
+                if(level!=null&&(tailMask>>level.ordinal()&1)==0)return false; // sparse skip
+                data=tail.duplicate(); // private position per iteration
+                ts=tailFirstTs;
+                return true;
+            }
+            private boolean nextBlock(){
+                if(seg>=view.length)return false; // segments and pending records consumed
+                while(true){
+                    if(seg<0||++block>=blocks[seg]){if(!nextSegment())return pendingBlock();continue;}
+                    if(view[seg].firstTs(block)>endTime)return false; // later blocks are newer
+                    if(!view[seg].hasLevel(block,level))continue; // sparse skip
+                    try{
+                        data=view[seg].readBlock(block);
+                    }catch(IOException e){
+                        throw new UncheckedIOException(e);
+                    }
+                    if(data==null){block=blocks[seg];continue;} // segment expired
+                    ts=view[seg].firstTs(block);
+                    return true;
+                }
+            }
+            public boolean hasNext(){
+                while(pending==null&&!done){
+                    if(data==null||!data.hasRemaining()){
+                        if(!nextBlock()){done=true;break;}
+                        continue;
+                    }
+                    LogLevel l=LEVELS[data.get()]; // decode record
+                    ts+=getVarLong(data);
+                    int length=(int)getVarLong(data);
+                    int at=data.position();
+                    data.position(at+length);
+                    if(ts>endTime){done=true;break;}
+                    if(ts<startTime||(level!=null&&l!=level))continue;
+                    pending=new LogEntry(l,new String(data.array(),at,length,StandardCharsets.UTF_8),ts);
+                }
+                return pending!=null;
+            }
+            public LogEntry next(){
+                if(!hasNext())throw new NoSuchElementException();
+                LogEntry entry=pending;
+                pending=null;
+                return entry;
+            }
+        };
+    }
+    // Time Complexity: O(S + log B + block bytes) when the id lies in another block than the
+    // previous call, O(records skipped) otherwise; ids looked up in ascending order decode each block once
+    public LongFunction<LogEntry> lookup(){
+        LogSegment[] view=segments.toArray(new LogSegment[0]); // snapshot
+        int[] blocks=new int[view.length];
+        for(int i=0;i<view.length;i++)blocks[i]=view[i].blockCount(); // ignore later blocks
+        ByteBuffer tail=pendingSnapshot(); // unflushed records, block index view.length
+        long tailFirstId=blockFirstId,tailFirstTs=blockFirstTs;
+        long limit=nextId; // ids appended later are not visible
+        return new LongFunction<LogEntry>(){
+            int seg=-1,block=-1; // block currently decoded
+            ByteBuffer data; // its records
+            long id,ts; // id and timestamp of the record data points at, minus one record
+            public LogEntry apply(long target){
+                if(target<0||target>=limit)return null;
+                int s=view.length,lo=0; // pending records
+                if(tail==null||target<tailFirstId){
+                    s--; // newest segment whose first id <= target
+                    while(s>=0&&(blocks[s]==0||view[s].firstId(0)>target))s--;
+                    if(s<0)return null; // expired
+                    int hi=blocks[s]-1; // last block whose first id <= target
+                    while(lo<hi){
+                        int mid=(lo+hi+1)>>>1;
+                        if(view[s].firstId(mid)<=target)lo=mid;
+                        else hi=mid-1;
+                    }
+                }
+                if(s==view.length&&(s!=seg||target<id)){ // rewind the pending records
+                    data=tail.duplicate();
+                    seg=s;block=lo;
+                    id=tailFirstId;ts=tailFirstTs;
+                }else if(s!=seg||lo!=block||target<id){ // decode another block
+                    try{
+                        data=view[s].readBlock(lo);
+                    }catch(IOException e){
+                        throw new UncheckedIOException(e);
+                    }
+                    seg=s;block=lo;
+                    if(data==null)return null; // segment expired
+                    id=view[s].firstId(lo);ts=view[s].firstTs(lo);
+                }
+                if(data==null)return null;
+                while(data.hasRemaining()){
+                    LogLevel l=LEVELS[data.get()]; // decode record
+                    ts+=getVarLong(data);
+                    int length=(int)getVarLong(data);
+                    int at=data.position();
+                    data.position(at+length);
+                    if(id++==target)return new LogEntry(l,new String(data.array(),at,length,StandardCharsets.UTF_8),ts);
+                }
+                return null;
+            }
+        };
+    }
+    public long firstId(){ // O(1) unless leading segments are empty
+        for(LogSegment segment:segments)if(segment.blockCount()>0)return segment.firstId(0);
+        return buffer.position()>0?blockFirstId:nextId; // nothing sealed yet
+    }
+    public void close(){
+        try{
+            flushBlock(); // persist pending records
+            compressor.shutdown();
+            compressor.awaitTermination(1,TimeUnit.MINUTES); // let sealing finish
+            for(LogSegment segment:segments)segment.closeChannel();
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+// ================= POSTING LIST =================
+// ascending entry ids of one token, stored as varint-encoded gaps; appended under the
+// Logger's lock, read through cursors over a snapshot of (array, length)
+class PostingList{
+    private byte[] data=new byte[4]; // gap bytes, grows by copy so snapshots keep their array
+    private int length; // bytes used
+    private long firstId=-1,lastId=-1; // first and last id stored
+    private int count; // ids stored
+    // Time Complexity: O(1) amortized; repeated tokens within one entry are stored once
+    public void add(long id){
+        if(id==lastId)return;
+        if(length+10>data.length)data=Arrays.copyOf(data,Math.max(data.length*2,length+10));
+        long gap=id-lastId; // >= 1
+        while((gap&~0x7FL)!=0){data[length++]=(byte)((gap&0x7F)|0x80);gap>>>=7;}
+        data[length++]=(byte)gap;
+        if(count++==0)firstId=id;
+        lastId=id;
+    }
+    // Time Complexity: O(bytes); ids below bound are dropped into a new array so snapshots keep
+    // theirs. Returns false once nothing is left
+    public boolean prune(long bound){
+        if(firstId>=bound)return true; // nothing expired
+        if(lastId<bound)return false; // everything expired
+        int pos=0,dropped=0;
+        long id=-1;
+        while(true){ // skip gaps up to the first id >= bound
+            long gap=0;
+            for(int shift=0;;shift+=7){
+                byte b=data[pos++];
+                gap|=(long)(b&0x7F)<<shift;
+                if(b>=0)break;
+            }
+            if((id+=gap)>=bound)break;
+            dropped++;
+        }
+        byte[] kept=new byte[Math.max(4,length-pos+10)];
+        int n=0;
+        for(long first=id+1;;first>>>=7){ // first gap is relative to -1 again
+            if((first&~0x7FL)==0){kept[n++]=(byte)first;break;}
+            kept[n++]=(byte)((first&0x7F)|0x80);
+        }
+        System.arraycopy(data,pos,kept,n,length-pos); // later gaps are unchanged
+        data=kept;
+        length=n+length-pos;
+        count-=dropped;
+        firstId=id;
+        return true;
+    }
+    public int size(){return count;} // O(1)
+    public int bytes(){return length;} // O(1)
+    public Supplier<PostingCursor> snapshot(){ // fresh cursors over the ids stored so far
+        byte[] view=data;
+        int end=length;
+        return ()->new PostingCursor(){
+            int pos; // next gap
+            long id=-1; // last id returned
+            public long next(){
+                if(pos>=end)return -1;
+                long gap=0;
+                for(int shift=0;;shift+=7){
+                    byte b=view[pos++];
+                    gap|=(long)(b&0x7F)<<shift;
+                    if(b>=0)break;
+                }
+                return id+=gap;
+            }
+        };
+    }
+}
+// ================= POSTING CURSORS =================
+interface PostingCursor{
+    long next(); // next id in ascending order, -1 when exhausted
+    PostingCursor EMPTY=()->-1;
+}
+// ids present in every part; leapfrogs the parts up to the current candidate
+class AndCursor implements PostingCursor{
+    private final PostingCursor[] parts; // intersected cursors
+    private final long[] heads; // last id read from each part
+    private boolean done; // some part exhausted
+    public AndCursor(PostingCursor[] parts){
+        this.parts=parts;
+        this.heads=new long[parts.length];
+        Arrays.fill(heads,-1);
+    }
+    // Time Complexity: O(ids read from all parts)
+    public long next(){
+        if(done)return -1;
+        long target=heads[0]=parts[0].next(); // step past the previous match
+        if(target<0){done=true;return -1;}
+        int agreed=1;
+        for(int i=1%parts.length;agreed<parts.length;i=(i+1)%parts.length){
+            while(heads[i]<target){
+                heads[i]=parts[i].next();
+                if(heads[i]<0){done=true;return -1;}
+            }
+            if(heads[i]==target)agreed++;
+            else{target=heads[i];agreed=1;} // candidate moves forward
+        }
+        return target;
+    }
+}
+// ids present in any part; k-way merge without duplicates
+class OrCursor implements PostingCursor{
+    private final PostingCursor[] parts; // merged cursors
+    private final long[] heads; // current id of each part
+    private final PriorityQueue<Integer> queue; // parts by head
+    private boolean started; // heads loaded
+    public OrCursor(PostingCursor[] parts){
+        this.parts=parts;
+        this.heads=new long[parts.length];
+        this.queue=new PriorityQueue<>(Math.max(1,parts.length),(a,b)->Long.compare(heads[a],heads[b]));
+    }
+    // Time Complexity: O(log k) per id read
+    public long next(){
+        if(!started){
+            started=true;
+            for(int i=0;i<parts.length;i++)if((heads[i]=parts[i].next())>=0)queue.add(i);
+        }
+        if(queue.isEmpty())return -1;
+        long min=heads[queue.peek()];
+        while(!queue.isEmpty()&&heads[queue.peek()]==min){ // advance every part sitting on min
+            int i=queue.poll();
+            if((heads[i]=parts[i].next())>=0)queue.add(i);
+        }
+        return min;
+    }
+}
+// ================= TEXT QUERY =================
+// bound under the Logger's lock to posting snapshots; the bound form opens fresh cursors.
+// queries touching long-token buckets are not exact and re-check each candidate's tokens
+interface TextQuery{
+    Supplier<PostingCursor> bind(FullTextIndex index);
+    boolean exact(FullTextIndex index); // postings alone decide a match, under the same lock as bind
+    boolean matches(Set<String> tokens); // re-check against an entry's tokens
+    private static TextQuery of(Function<FullTextIndex,Supplier<PostingCursor>> bind,Predicate<FullTextIndex> exact,Predicate<Set<String>> matches){
+        return new TextQuery(){
+            public Supplier<PostingCursor> bind(FullTextIndex index){return bind.apply(index);}
+            public boolean exact(FullTextIndex index){return exact.test(index);}
+            public boolean matches(Set<String> tokens){return matches.test(tokens);}
+        };
+    }
+    static TextQuery term(String text){ // every token of text (one token = plain term lookup)
+        List<String> tokens=FullTextIndex.tokenize(text);
+        if(tokens.size()==1){
+            String token=tokens.get(0);
+            boolean shortToken=token.length()<=FullTextIndex.MAX_TOKEN; // has its own posting list
+            return of(index->index.posting(token),index->shortToken,t->t.contains(token));
+        }
+        return and(tokens.stream().map(TextQuery::term).toArray(TextQuery[]::new));
+    }
+    // any token starting with prefix. Long tokens sit only in the hashed buckets, so every
+    // bucket joins the candidates and each one is checked with startsWith; the query is
+    // exact only while the index holds no long tokens
+    static TextQuery prefix(String prefix){
+        String p=prefix.toLowerCase(Locale.ROOT);
+        Predicate<Set<String>> matches=t->t.stream().anyMatch(token->token.startsWith(p));
+        if(p.length()>FullTextIndex.MAX_TOKEN) // longer prefixes only occur in long tokens
+            return of(index->index.postingsWithPrefix(FullTextIndex.LONG_KEY),index->false,matches);
+        return of(index->index.hasLongTokens()
+                        ?FullTextIndex.union(List.of(index.postingsWithPrefix(p),index.postingsWithPrefix(FullTextIndex.LONG_KEY)))
+                        :index.postingsWithPrefix(p),
+                index->!index.hasLongTokens(),matches);
+    }
+    static TextQuery and(TextQuery... queries){
+        return of(index->{
+            List<Supplier<PostingCursor>> parts=new ArrayList<>();
+            for(TextQuery q:queries)parts.add(q.bind(index));
+            return ()->{
+                if(parts.isEmpty())return PostingCursor.EMPTY;
+                PostingCursor[] cursors=new PostingCursor[parts.size()];
+                for(int i=0;i<cursors.length;i++)cursors[i]=parts.get(i).get();
+                return cursors.length==1?cursors[0]:new AndCursor(cursors);
+            };
+        },index->Arrays.stream(queries).allMatch(q->q.exact(index)),t->Arrays.stream(queries).allMatch(q->q.matches(t)));
+    }
+    static TextQuery or(TextQuery... queries){
+        return of(index->{
+            List<Supplier<PostingCursor>> parts=new ArrayList<>();
+            for(TextQuery q:queries)parts.add(q.bind(index));
+            return FullTextIndex.union(parts);
+        },index->Arrays.stream(queries).allMatch(q->q.exact(index)),t->Arrays.stream(queries).anyMatch(q->q.matches(t)));
+    }
+}
+// ================= FULL-TEXT INDEX =================
+// token -> posting list, sorted so prefix queries are a sub-map scan. Tokens are maximal
+// runs of letters/digits, lower-cased; tokens longer than MAX_TOKEN share LONG_BUCKETS hashed
+// lists, so queries on them are verified against the entry text.
+// Every CHECKPOINT-th entry's (id, timestamp) is kept so time filters become id bounds
+class FullTextIndex{
+    static final int MAX_TOKEN=64; // keeps ids, hashes and payloads out of the dictionary
+    private static final int LONG_BUCKETS=256; // hashed lists shared by longer tokens
+    static final String LONG_KEY="\uFFFF"; // bucket key prefix, never a letter or digit
+    private static final int CHECKPOINT=1024; // entries between time checkpoints
+    private final TreeMap<String,PostingList> terms=new TreeMap<>(); // dictionary
+    private long prunedBelow; // ids below this are gone from every list
+    private long[] checkpointId=new long[16],checkpointTs=new long[16]; // sparse id -> time index
+    private int checkpoints; // checkpoints used
+    private long indexed; // entries indexed
+    // Time Complexity: O(message length + tokens * log V)
+    public void add(long id,LogEntry entry){
+        if(indexed++%CHECKPOINT==0){
+            if(checkpoints==checkpointId.length){
+                checkpointId=Arrays.copyOf(checkpointId,checkpoints*2);
+                checkpointTs=Arrays.copyOf(checkpointTs,checkpoints*2);
+            }
+            checkpointId[checkpoints]=id;
+            checkpointTs[checkpoints++]=entry.getTimestamp();
+        }
+        for(String token:tokenize(entry.getMessage()))
+            terms.computeIfAbsent(key(token),t->new PostingList()).add(id);
+    }
+    static String key(String token){ // dictionary key: the token itself or its hash bucket
+        return token.length()<=MAX_TOKEN?token:LONG_KEY+(token.hashCode()&(LONG_BUCKETS-1));
+    }
+    // Time Complexity: O(1) unless bound moved, then O(V + checkpoints + bytes of lists losing ids);
+    // called after each append with the store's oldest retained id
+    public void prune(long bound){
+        if(bound<=prunedBelow)return; // retention dropped nothing new
+        prunedBelow=bound;
+        terms.values().removeIf(list->!list.prune(bound));
+        int expired=0; // checkpoints below bound are no longer useful as lower bounds
+        while(expired<checkpoints&&checkpointId[expired]<bound)expired++;
+        System.arraycopy(checkpointId,expired,checkpointId,0,checkpoints-expired);
+        System.arraycopy(checkpointTs,expired,checkpointTs,0,checkpoints-expired);
+        checkpoints-=expired;
+    }
+    public static List<String> tokenize(String text){ // O(length)
+        List<String> tokens=new ArrayList<>();
+        int start=-1;
+        for(int i=0;i<=text.length();i++){
+            boolean word=i<text.length()&&Character.isLetterOrDigit(text.charAt(i));
+            if(word&&start<0)start=i;
+            else if(!word&&start>=0){
+                tokens.add(text.substring(start,i).toLowerCase(Locale.ROOT));
+                start=-1;
+            }
+        }
+        return tokens;
+    }
+    public Supplier<PostingCursor> posting(String token){ // O(log V); a whole bucket for long tokens
+        PostingList list=terms.get(key(token));
+        return list==null?()->PostingCursor.EMPTY:list.snapshot();
+    }
+    boolean hasLongTokens(){return terms.ceilingKey(LONG_KEY)!=null;} // O(log V); bucket keys sort last
+    public Supplier<PostingCursor> postingsWithPrefix(String prefix){ // O(log V + matching tokens)
+        List<Supplier<PostingCursor>> parts=new ArrayList<>();
+        for(PostingList list:terms.subMap(prefix,true,prefix+Character.MAX_VALUE,true).values())parts.add(list.snapshot());
+        return union(parts);
+    }
+    static Supplier<PostingCursor> union(List<Supplier<PostingCursor>> parts){
+        return ()->{
+            if(parts.isEmpty())return PostingCursor.EMPTY;
+            if(parts.size()==1)return parts.get(0).get();
+            PostingCursor[] cursors=new PostingCursor[parts.size()];
+            for(int i=0;i<cursors.length;i++)cursors[i]=parts.get(i).get();
+            return new OrCursor(cursors);
+        };
+    }
+    // Time Complexity: O(log checkpoints); ids below this all carry timestamps < startTime
+    public long firstIdFrom(long startTime){
+        int lo=0,hi=checkpoints; // first checkpoint with ts >= startTime
+        while(lo<hi){
+            int mid=(lo+hi)>>>1;
+            if(checkpointTs[mid]<startTime)lo=mid+1;
+            else hi=mid;
+        }
+        return lo==0?0:checkpointId[lo-1];
+    }
+    // Time Complexity: O(log checkpoints); ids from this one on all carry timestamps > endTime
+    public long idLimitAfter(long endTime){
+        int lo=0,hi=checkpoints; // first checkpoint with ts > endTime
+        while(lo<hi){
+            int mid=(lo+hi)>>>1;
+            if(checkpointTs[mid]<=endTime)lo=mid+1;
+            else hi=mid;
+        }
+        return lo==checkpoints?Long.MAX_VALUE:checkpointId[lo];
+    }
+    public int termCount(){return terms.size();} // O(1)
+    public long postingBytes(){ // O(V)
+        long total=0;
+        for(PostingList list:terms.values())total+=list.bytes();
+        return total;
+    }
+}
+class Logger{
+    private LogStore store; // indexed entries
+    private long lastTimestamp; // keeps index order and time order identical
+    private AsyncLogRing ring; // async mode only (null = synchronous)
+    private LogSink sink; // optional output
+    private volatile int minLevel; // ordinal of the lowest recorded level
+    private FullTextIndex textIndex; // token -> entry ids (null = not indexed)
+    public Logger(){
+        this(new MemoryLogStore()); // in-memory history
+    }
+    public Logger(LogStore store){
+        this.store=store; // assign store
+    }
+    // async mode: callers only touch the ring; the consumer thread indexes and writes to sink
+    public Logger(int ringCapacity,OverflowPolicy policy,LogSink sink){
+        this(new MemoryLogStore(),ringCapacity,policy,sink);
+    }
+    public Logger(LogStore store,int ringCapacity,OverflowPolicy policy,LogSink sink){
+        this(store); // initialize store
+        this.sink=sink; // assign sink
+        this.ring=new AsyncLogRing(ringCapacity,policy,this); // start consumer
+    }
+
+    public void setMinLevel(LogLevel level){this.minLevel=level.ordinal();} // filter threshold
+    public boolean isEnabled(LogLevel level){return level.ordinal()>=minLevel;} // O(1)
+    // indexes every entry stored from now on; indexing renders the message, on the
+    // consumer thread in async mode, so enable it right after construction
+    public synchronized void enableFullTextIndex(){if(textIndex==null)textIndex=new FullTextIndex();}
+
+    // ================= LOG API =================
+    // below the minimum level every overload returns after one volatile read; the
+    // primitive and one/two-argument overloads allocate nothing on the async path
+    public void log(LogLevel level,String message){
+        if(isEnabled(level))record(level,message,LogSlot.NONE,null,0,LogSlot.NONE,null,0,null);
+    }
+    public void log(LogLevel level,String template,long arg){
+        if(isEnabled(level))record(level,template,LogSlot.LONG,null,arg,LogSlot.NONE,null,0,null);
+    }
+    public void log(LogLevel level,String template,long arg0,long arg1){
+        if(isEnabled(level))record(level,template,LogSlot.LONG,null,arg0,LogSlot.LONG,null,arg1,null);
+    }
+    public void log(LogLevel level,String template,double arg){
+        if(isEnabled(level))record(level,template,LogSlot.DOUBLE,null,Double.doubleToRawLongBits(arg),LogSlot.NONE,null,0,null);
+    }
+    public void log(LogLevel level,String template,Object arg){
+        if(isEnabled(level))record(level,template,LogSlot.OBJECT,arg,0,LogSlot.NONE,null,0,null);
+    }
+    public void log(LogLevel level,String template,Object arg0,long arg1){
+        if(isEnabled(level))record(level,template,LogSlot.OBJECT,arg0,0,LogSlot.LONG,null,arg1,null);
+    }
+    public void log(LogLevel level,String template,Object arg0,Object arg1){
+        if(isEnabled(level))record(level,template,LogSlot.OBJECT,arg0,0,LogSlot.OBJECT,arg1,0,null);
+    }
+    public void log(LogLevel level,String template,Object... args){ // varargs array is the caller's allocation
+        if(isEnabled(level))record(level,template,LogSlot.NONE,null,0,LogSlot.NONE,null,0,args);
     }
 
-    public synchronized List<LogEntry> getLogs(LogLevel level){ // fetch logs by level
-        return new ArrayList<>(logsByLevel.get(level)); // return copy
+    private void record(LogLevel level,String template,byte kind0,Object object0,long bits0,
+                        byte kind1,Object object1,long bits1,Object[] extra){
+        long now=System.currentTimeMillis(); // stamp at the call, so callers' own clock readings bracket it
+        if(ring!=null){ring.publish(level,template,kind0,object0,bits0,kind1,object1,bits1,extra,now);return;} // async path
+        Object[] args=LogSlot.toArgs(kind0,object0,bits0,kind1,object1,bits1,extra);
+        LogEntry entry;
+        synchronized(this){ // thread safe append
+            lastTimestamp=Math.max(lastTimestamp,now); // never step back in time
+            entry=args==null?new LogEntry(level,template,lastTimestamp)
+                    :new LogEntry(level,template,args,lastTimestamp); // formatted lazily
+            long id=store.append(entry); // index entry
+            if(textIndex!=null){textIndex.add(id,entry);textIndex.prune(store.firstId());} // follow retention
+        }
+        if(sink!=null)sink.write(Collections.singletonList(entry)); // synchronous output
+    }
+
+    // called by the consumer thread with a batch in sequence order; a producer that
+    // stamped its entry just before a faster one inherits its predecessor's millisecond
+    void append(List<LogEntry> batch){
+        synchronized(this){ // one lock per batch
+            for(int i=0;i<batch.size();i++){
+                LogEntry entry=batch.get(i);
+                if(entry.getTimestamp()<lastTimestamp){ // restore time order
+                    entry=entry.restamp(lastTimestamp);
+                    batch.set(i,entry);
+                }
+                lastTimestamp=entry.getTimestamp();
+                long id=store.append(entry); // index entry
+                if(textIndex!=null)textIndex.add(id,entry);
+            }
+            if(textIndex!=null)textIndex.prune(store.firstId()); // follow retention
+        }
+        if(sink!=null)sink.write(batch); // batched output
+    }
+
+    public void flush(){if(ring!=null)ring.flush();} // make earlier log calls visible to queries
+    public void close() throws InterruptedException{ // stop consumer, release store
+        if(ring!=null)ring.close();
+        synchronized(this){store.close();}
     }
+    public long getDroppedCount(){return ring==null?0:ring.getDroppedCount();} // overflow drops
 
-    public synchronized List<LogEntry> getAllLogs(){ // fetch all logs
-        return new ArrayList<>(allLogs); // return copy
+    private static List<LogEntry> toList(Iterable<LogEntry> view){ // materialize a view
+        List<LogEntry> result=new ArrayList<>(); // store logs
+        for(LogEntry log:view)result.add(log);
+        return result;
     }
 
-    public synchronized List<LogEntry> getLogs(long startTime,long endTime){ // filter by time range
-        List<LogEntry> result=new ArrayList<>(); // store filtered logs
-        for(LogEntry log:allLogs){ // iterate all logs
-            if(log.getTimestamp()>=startTime && log.getTimestamp()<=endTime)
-                result.add(log); // add if in range
+    public List<LogEntry> getLogs(LogLevel level){ // fetch logs by level
+        return toList(streamLogs(level,Long.MIN_VALUE,Long.MAX_VALUE)); // return copy
+    }
+
+    public List<LogEntry> getAllLogs(){ // fetch all logs
+        return toList(streamLogs(Long.MIN_VALUE,Long.MAX_VALUE)); // return copy
+    }
+
+    public List<LogEntry> getLogs(long startTime,long endTime){ // filter by time range
+        return toList(streamLogs(startTime,endTime)); // O(log N + R)
+    }
+
+    public List<LogEntry> getLogs(LogLevel level,long startTime,long endTime){ // level + time range
+        return toList(streamLogs(level,startTime,endTime)); // O(log N + R)
+    }
+
+    // lazy views: positioned under the lock, iterated without it; later appends are not seen
+    public synchronized Iterable<LogEntry> streamLogs(long startTime,long endTime){
+        return store.range(null,startTime,endTime); // O(log N) to position
+    }
+
+    public synchronized Iterable<LogEntry> streamLogs(LogLevel level,long startTime,long endTime){
+        return store.range(level,startTime,endTime); // per-level index, O(log N) to position
+    }
+
+    // ================= FULL-TEXT SEARCH =================
+    public List<LogEntry> search(TextQuery query){ // every level, all time
+        return toList(streamSearch(query,null,Long.MIN_VALUE,Long.MAX_VALUE));
+    }
+
+    public List<LogEntry> search(TextQuery query,LogLevel level,long startTime,long endTime){ // level == null = any
+        return toList(streamSearch(query,level,startTime,endTime));
+    }
+
+    // Time Complexity: O(log V + posting bytes read) plus one store lookup per candidate id;
+    // the time range bounds the ids scanned, level and exact time are checked per entry
+    public synchronized Iterable<LogEntry> streamSearch(TextQuery query,LogLevel level,long startTime,long endTime){
+        if(textIndex==null)throw new IllegalStateException("Full-text index is not enabled");
+        Supplier<PostingCursor> ids=query.bind(textIndex); // posting snapshots
+        boolean verify=!query.exact(textIndex); // long-token buckets hold other tokens too
+        long firstId=textIndex.firstIdFrom(startTime),idLimit=textIndex.idLimitAfter(endTime);
+        LongFunction<LogEntry> entries=store.lookup(); // id -> entry snapshot
+        return ()->new Iterator<LogEntry>(){
+            PostingCursor cursor=ids.get(); // fresh cursor per iteration
+            LogEntry pending; // next matching entry
+            boolean done; // ids exhausted or past the time range
+            public boolean hasNext(){
+                while(pending==null&&!done){
+                    long id=cursor.next();
+                    if(id<0||id>=idLimit){done=true;break;}
+                    if(id<firstId)continue;
+                    LogEntry entry=entries.apply(id);
+                    if(entry==null)continue; // expired by retention
+                    if(entry.getTimestamp()>endTime){done=true;break;} // ids follow time order
+                    if(entry.getTimestamp()<startTime||(level!=null&&entry.getLevel()!=level))continue;
+                    if(verify&&!query.matches(new HashSet<>(FullTextIndex.tokenize(entry.getMessage()))))continue; // hash bucket hit
+                    pending=entry;
+                }
+                return pending!=null;
+            }
+            public LogEntry next(){
+                if(!hasNext())throw new NoSuchElementException();
+                LogEntry entry=pending;
+                pending=null;
+                return entry;
+            }
+        };
+    }
+}
+// ================= BENCHMARK =================
+// per-call logging latency, synchronous vs async ring, at increasing producer counts
+class LoggerBenchmark{
+    private static final int TOTAL_MESSAGES=2_000_000; // split across producers
+    private static long[] runOnce(Logger logger,int threads) throws InterruptedException{
+        int perThread=TOTAL_MESSAGES/threads;
+        long[][] samples=new long[threads][perThread/16]; // every 16th call
+        Thread[] workers=new Thread[threads];
+        long t0=System.nanoTime();
+        for(int t=0;t<threads;t++){
+            final int id=t;
+            workers[t]=new Thread(()->{
+                for(int i=0;i<perThread;i++){
+                    long start=System.nanoTime();
+                    logger.log(LogLevel.INFO,"request handled");
+                    if((i&15)==0&&i/16<samples[id].length)samples[id][i/16]=System.nanoTime()-start;
+                }
+            });
+            workers[t].start();
+        }
+        for(Thread worker:workers)worker.join();
+        long elapsed=System.nanoTime()-t0;
+        logger.flush(); // drain before the next run
+        long[] all=Arrays.stream(samples).flatMapToLong(Arrays::stream).sorted().toArray();
+        return new long[]{elapsed,all[all.length/2],all[(int)(all.length*0.99)]};
+    }
+    // heap stays flat while a disk-backed logger rolls, compresses and expires segments
+    public static void disk() throws IOException,InterruptedException{
+        Path dir=Files.createTempDirectory("logs");
+        Logger logger=new Logger(new SegmentLogStore(dir,8<<20,4)); // 4 × 8MB retained
+        Runtime rt=Runtime.getRuntime();
+        for(int i=1;i<=5_000_000;i++){
+            logger.log(LogLevel.values()[i&3],"order "+i+" processed by worker "+(i%32));
+            if(i%1_000_000==0){
+                System.gc();
+                long files=Files.list(dir).count();
+                System.out.printf("entries=%,d heap=%,d KB segment files=%d%n",i,(rt.totalMemory()-rt.freeMemory())/1024,files);
+            }
+        }
+        int errors=0;
+        for(LogEntry entry:logger.streamLogs(LogLevel.ERROR,Long.MIN_VALUE,Long.MAX_VALUE))errors++; // stream from disk
+        System.out.printf("retained ERROR entries streamed=%,d%n",errors);
+        logger.close();
+        try(DirectoryStream<Path> files=Files.newDirectoryStream(dir)){for(Path f:files)Files.delete(f);}
+        Files.delete(dir);
+    }
+    // bytes allocated by the calling thread per log call (JMH's gc profiler reports the same counter)
+    private static double bytesPerCall(String label,Runnable call){
+        com.sun.management.ThreadMXBean mx=(com.sun.management.ThreadMXBean)java.lang.management.ManagementFactory.getThreadMXBean();
+        long tid=Thread.currentThread().getId();
+        for(int i=0;i<500_000;i++)call.run(); // warmup / JIT
+        long before=mx.getThreadAllocatedBytes(tid);
+        int calls=1_000_000;
+        for(int i=0;i<calls;i++)call.run();
+        double perCall=(double)(mx.getThreadAllocatedBytes(tid)-before)/calls;
+        System.out.printf("%-32s %.2f bytes/call%n",label,perCall);
+        return perCall;
+    }
+    public static void allocation() throws InterruptedException{
+        LogSink discard=batch->{}; // measure logging, not output
+        Logger sync=new Logger(new MemoryLogStore(){public long append(LogEntry entry){return 0;}}); // discard store
+        Logger async=new Logger(new MemoryLogStore(){public long append(LogEntry entry){return 0;}},1<<16,OverflowPolicy.BLOCK,discard);
+        sync.setMinLevel(LogLevel.INFO);
+        async.setMinLevel(LogLevel.INFO);
+        bytesPerCall("disabled DEBUG (long arg)",()->sync.log(LogLevel.DEBUG,"cache miss {}",42L));
+        bytesPerCall("async INFO (long, long)",()->async.log(LogLevel.INFO,"order {} shard {}",7L,3L));
+        bytesPerCall("async INFO (Object arg)",()->async.log(LogLevel.INFO,"user {}","alice"));
+        bytesPerCall("sync INFO (long arg)",()->sync.log(LogLevel.INFO,"order {}",7L));
+        async.close();
+    }
+    public static void run() throws InterruptedException{
+        LogSink discard=batch->{}; // measure logging, not console output
+        for(int threads:new int[]{1,4,16,64}){
+            for(String mode:new String[]{"sync","async"}){
+                Logger logger="sync".equals(mode)?new Logger():new Logger(1<<16,OverflowPolicy.BLOCK,discard);
+                runOnce(logger,threads); // warmup
+                logger.close(); // drop warmup history and its consumer thread
+                logger="sync".equals(mode)?new Logger():new Logger(1<<16,OverflowPolicy.BLOCK,discard);
+                long[] r=runOnce(logger,threads);
+                System.out.printf("%-5s threads=%2d throughput=%,d msg/s p50=%,d ns p99=%,d ns%n",
+                        mode,threads,TOTAL_MESSAGES*1_000_000_000L/r[0],r[1],r[2]);
+                logger.close();
+            }
         }
-        return result; // return filtered logs
     }
 }
 
 public class Main{
-    public static void main(String[] args) throws InterruptedException{
+    public static void main(String[] args) throws InterruptedException,IOException{
+        if(args.length>0&&"bench".equals(args[0])){LoggerBenchmark.run();return;} // run benchmark
+        if(args.length>0&&"bench-disk".equals(args[0])){LoggerBenchmark.disk();return;} // bounded heap run
+        if(args.length>0&&"bench-alloc".equals(args[0])){LoggerBenchmark.allocation();return;} // hot path allocation
         Logger logger=new Logger(); // create logger
 
         logger.log(LogLevel.INFO,"Application started"); // log info
-        logger.log(LogLevel.DEBUG,"Debug value x=10"); // log debug
+        logger.log(LogLevel.DEBUG,"Debug value x={}",10); // formatted only when read
         logger.log(LogLevel.ERROR,"Database connection failed"); // log error
 
         Thread.sleep(10); // simulate delay
@@ -75,5 +1292,45 @@ public class Main{
         System.out.println("---- TIME RANGE LOGS ----");
         for(LogEntry log:logger.getLogs(start,System.currentTimeMillis())) // filter by time
             System.out.println(log);
+
+        logger.setMinLevel(LogLevel.INFO); // drop DEBUG from here on
+        logger.log(LogLevel.DEBUG,"Cache miss for key {}",42); // skipped, never formatted
+
+        System.out.println("---- INFO LOGS IN TIME RANGE ----");
+        for(LogEntry log:logger.streamLogs(LogLevel.INFO,start,System.currentTimeMillis())) // level + time, lazy
+            System.out.println(log);
+
+        System.out.println("---- FULL-TEXT SEARCH ----");
+        Logger searchable=new Logger(); // indexed logger
+        searchable.enableFullTextIndex();
+        searchable.log(LogLevel.INFO,"Order {} created by user {}","A-1001","alice");
+        searchable.log(LogLevel.ERROR,"Payment failed for order {}","A-1001");
+        searchable.log(LogLevel.INFO,"Order {} created by user {}","B-2002","bob");
+        searchable.log(LogLevel.WARN,"Payment retry for order {}","B-2002");
+        for(LogEntry log:searchable.search(TextQuery.term("order A-1001"))) // both tokens
+            System.out.println(log);
+        for(LogEntry log:searchable.search(TextQuery.and(TextQuery.prefix("pay"),TextQuery.or(TextQuery.term("a"),TextQuery.term("b"))),
+                LogLevel.WARN,Long.MIN_VALUE,Long.MAX_VALUE)) // prefix + OR + level
+            System.out.println(log);
+
+        System.out.println("---- ASYNC LOGGER ----");
+        Logger async=new Logger(1024,OverflowPolicy.DROP_BELOW_WARN,new ConsoleLogSink()); // background writer
+        async.log(LogLevel.INFO,"Async logger started"); // returns immediately
+        async.log(LogLevel.ERROR,"Payment service timeout");
+        async.flush(); // wait for consumer
+        System.out.println("indexed="+async.getAllLogs().size()+" dropped="+async.getDroppedCount());
+        async.close(); // stop consumer
+
+        System.out.println("---- DISK SEGMENTS ----");
+        Path dir=Files.createTempDirectory("logs"); // segment directory
+        Logger disk=new Logger(new SegmentLogStore(dir,256,3)); // tiny segments, keep 3
+        for(int i=1;i<=40;i++)disk.log(i%10==0?LogLevel.ERROR:LogLevel.INFO,"request "+i); // rolls several times
+        for(LogEntry log:disk.getLogs(LogLevel.ERROR)) // streamed from retained segments
+            System.out.println(log);
+        disk.close(); // flush and finish compression
+        try(DirectoryStream<Path> files=Files.newDirectoryStream(dir)){ // show and clean up
+            for(Path f:files){System.out.println(f.getFileName());Files.delete(f);}
+        }
+        Files.delete(dir);
     }
-}
\ No newline at end of file
+}
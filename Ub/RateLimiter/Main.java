@@ -1,35 +1,82 @@
 import java.util.*; // import utility classes
+import java.util.concurrent.*; // concurrent registry
+import java.util.concurrent.atomic.*; // packed CAS state
+import java.util.function.*; // per-client strategy factories
+import java.io.*; // store I/O errors
+import java.nio.*; // store record buffer
+import java.nio.channels.*; // file locks
+import java.nio.file.*; // store directory
 
 // ================= STRATEGY INTERFACE =================
+// implementations are thread-safe; callers may race with slightly out-of-order timestamps
 interface RateLimitStrategy{
-    boolean isAllowed(int timestamp); // check if request allowed
+    boolean tryAcquire(int permits,int timestamp); // all permits or none; 0 permits always succeed
+    default boolean isAllowed(int timestamp){return tryAcquire(1,timestamp);} // check if request allowed
+    // batch against this one resource: decisions[positions[k]] for k in [from, to), in order
+    default void tryAcquireAll(int timestamp,int[] permits,int[] positions,int from,int to,boolean[] decisions){
+        for(int k=from;k<to;k++)decisions[positions[k]]=tryAcquire(permits[positions[k]],timestamp);
+    }
+}
+// ================= PACKED STRATEGY =================
+// strategies whose whole state fits in one long. admit is a pure function, so the same
+// logic drives one shared AtomicLong (per resource) and the per-client state tables
+abstract class PackedStrategy implements RateLimitStrategy{
+    private AtomicLong state; // this resource's state
+    abstract long initialState(); // state of a key never seen
+    abstract long admit(long state,int timestamp,int permits); // state after admitting permits ≥ 1, the same value when rejected
+    abstract int idleSeconds(); // after this long without requests the state equals initialState again
+    protected final void init(){this.state=new AtomicLong(initialState());} // end of subclass constructor
+    // Time Complexity: O(1); one CAS when admitted, none when rejected
+    public boolean tryAcquire(int permits,int timestamp){
+        if(permits==0)return true; // nothing to take
+        while(true){
+            long current=state.get();
+            long next=admit(current,timestamp,permits);
+            if(next==current)return false; // reject
+            if(state.compareAndSet(current,next))return true; // allow request
+        }
+    }
+    // the whole group is folded through admit on a local copy and published with one CAS;
+    // a lost race replays the group against the fresh state
+    // Time Complexity: O(to - from) per attempt
+    public void tryAcquireAll(int timestamp,int[] permits,int[] positions,int from,int to,boolean[] decisions){
+        while(true){
+            long current=state.get(),s=current;
+            for(int k=from;k<to;k++){
+                int p=permits[positions[k]];
+                long next=p==0?s:admit(s,timestamp,p);
+                decisions[positions[k]]=p==0||next!=s;
+                s=next;
+            }
+            if(s==current||state.compareAndSet(current,s))return; // nothing admitted or published
+        }
+    }
 }
 // ================= FIXED WINDOW COUNTER =================
-class FixedWindowCounterStrategy implements RateLimitStrategy{
+// state = window start (high 32 bits) | count (low 32 bits)
+class FixedWindowCounterStrategy extends PackedStrategy{
     private int maxRequests; // allowed requests
     private int timeWindow; // window size (seconds)
-    private int currentWindowStart; // window start timestamp
-    private int count; // request count in window
     public FixedWindowCounterStrategy(int maxRequests,int timeWindow){
         this.maxRequests=maxRequests; // assign limit
         this.timeWindow=timeWindow; // assign window
-        this.currentWindowStart=-1; // initialize
-        this.count=0; // initialize count
+        init();
     }
+    private static long pack(int windowStart,int count){return (long)windowStart<<32|(count&0xFFFFFFFFL);}
+    long initialState(){return pack(-1,0);} // no window yet
+    int idleSeconds(){return timeWindow;} // next request opens a new window
     // Time Complexity: O(1)
-    public boolean isAllowed(int timestamp){
-        if(currentWindowStart==-1) // first request
-            currentWindowStart=timestamp;
+    long admit(long state,int timestamp,int permits){
+        int windowStart=(int)(state>>>32),count=(int)state;
+        if(windowStart==-1) // first request
+            windowStart=timestamp;
         // check if new window started
-        if(timestamp-currentWindowStart>=timeWindow){
-            currentWindowStart=timestamp; // reset window
+        if(timestamp-windowStart>=timeWindow){
+            windowStart=timestamp; // reset window
             count=0; // reset count
         }
-        if(count<maxRequests){ // allow request
-            count++;
-            return true;
-        }
-        return false; // reject
+        if((long)count+permits>maxRequests)return state; // reject
+        return pack(windowStart,count+permits); // allow request
     }
 }
 
@@ -37,37 +84,544 @@ class FixedWindowCounterStrategy implements RateLimitStrategy{
 class SlidingWindowCounterStrategy implements RateLimitStrategy{
     private int maxRequests; // allowed requests
     private int timeWindow; // window size
-    private Deque<Integer> timestamps; // store request times
+    private Deque<int[]> timestamps; // {request time, permits}, one entry per distinct time
+    private long inWindow; // permits held by the log
     public SlidingWindowCounterStrategy(int maxRequests,int timeWindow){
         this.maxRequests=maxRequests; // assign limit
         this.timeWindow=timeWindow; // assign window
         this.timestamps=new ArrayDeque<>(); // initialize queue
     }
+    // exact log cannot be packed into one word, so it stays behind the object's monitor
     // Time Complexity: O(k) amortized
-    public boolean isAllowed(int timestamp){
+    public synchronized boolean tryAcquire(int permits,int timestamp){
+        return acquire(permits,timestamp);
+    }
+    // one monitor acquisition for the whole group
+    public synchronized void tryAcquireAll(int timestamp,int[] permits,int[] positions,int from,int to,boolean[] decisions){
+        for(int k=from;k<to;k++)decisions[positions[k]]=acquire(permits[positions[k]],timestamp);
+    }
+    private boolean acquire(int permits,int timestamp){ // caller holds the monitor
         // remove expired timestamps
-        while(!timestamps.isEmpty() && timestamp-timestamps.peekFirst()>=timeWindow)
-            timestamps.pollFirst(); // remove old
-        if(timestamps.size()<maxRequests){ // allow request
-            timestamps.offerLast(timestamp); // add timestamp
+        while(!timestamps.isEmpty() && timestamp-timestamps.peekFirst()[0]>=timeWindow)
+            inWindow-=timestamps.pollFirst()[1]; // remove old
+        if(inWindow+permits>maxRequests)return false; // reject
+        if(permits==0)return true; // nothing to log
+        int[] last=timestamps.peekLast();
+        if(last!=null&&last[0]==timestamp)last[1]+=permits; // same second: merge
+        else timestamps.offerLast(new int[]{timestamp,permits}); // add timestamp
+        inWindow+=permits;
+        return true; // allow request
+    }
+}
+
+// ================= TOKEN BUCKET =================
+// bucket of maxRequests tokens refilled continuously at maxRequests per timeWindow.
+// Tokens are kept in units of gcd/timeWindow so refill stays integer: one request costs
+// timeWindow/gcd units and every second adds maxRequests/gcd units.
+// state = last refill timestamp (high 32 bits) | available units (low 32 bits)
+class TokenBucketStrategy extends PackedStrategy{
+    private final long capacity; // bucket size in units
+    private final long refillPerSecond; // units added per second
+    private final long cost; // units per request
+    private final int timeWindow; // full refill time
+    public TokenBucketStrategy(int maxRequests,int timeWindow){
+        long g=gcd(maxRequests,timeWindow); // smallest exact units
+        this.capacity=(long)maxRequests*timeWindow/g; // assign size
+        this.refillPerSecond=maxRequests/g;
+        this.cost=timeWindow/g;
+        this.timeWindow=timeWindow;
+        if(capacity>0xFFFFFFFFL)throw new IllegalArgumentException("token bucket too large: "+maxRequests+","+timeWindow);
+        init();
+    }
+    private static long gcd(long a,long b){return b==0?Math.max(a,1):gcd(b,a%b);}
+    private static long pack(int lastRefill,long units){return (long)lastRefill<<32|units;}
+    long initialState(){return pack(Integer.MIN_VALUE,capacity);} // start full, no refill yet
+    int idleSeconds(){return timeWindow;} // bucket is full again
+    // Time Complexity: O(1); refill is recomputed, so a rejection changes nothing
+    long admit(long state,int timestamp,int permits){
+        int lastRefill=(int)(state>>>32);
+        long tokens=state&0xFFFFFFFFL;
+        if(timestamp>lastRefill){ // refill for elapsed time
+            if(lastRefill!=Integer.MIN_VALUE)
+                tokens=Math.min(capacity,tokens+(long)(timestamp-lastRefill)*refillPerSecond);
+            lastRefill=timestamp;
+        }
+        if(permits>capacity/cost||tokens<cost*permits)return state; // reject (larger than the bucket, or short)
+        return pack(lastRefill,tokens-cost*permits); // allow request
+    }
+}
+// ================= GCRA =================
+// generic cell rate algorithm: one "theoretical arrival time" per resource. Requests are
+// spaced by timeWindow / maxRequests and a burst of maxRequests is tolerated. Time is
+// kept in units of 1/maxRequests seconds so the emission interval is exactly timeWindow
+class GcraStrategy extends PackedStrategy{
+    private final int scale; // units per second (maxRequests)
+    private final long interval; // emission interval in units (timeWindow)
+    private final long tolerance; // burst tolerance: interval × (maxRequests - 1)
+    public GcraStrategy(int maxRequests,int timeWindow){
+        this.scale=maxRequests; // assign scale
+        this.interval=timeWindow;
+        this.tolerance=(long)timeWindow*(maxRequests-1);
+        init();
+    }
+    long initialState(){return Long.MIN_VALUE;} // nothing admitted yet
+    int idleSeconds(){return (int)interval;} // arrival time has passed
+    // Time Complexity: O(1); the state is the theoretical arrival time in units
+    long admit(long tat,int timestamp,int permits){
+        long now=(long)timestamp*scale;
+        long start=Math.max(tat,now); // idle time is not banked beyond the burst
+        if(start+(permits-1)*interval-now>tolerance)return tat; // last permit too early → reject
+        return start+permits*interval; // allow request
+    }
+}
+// ================= SLIDING WINDOW APPROXIMATION =================
+// sliding log approximated by two fixed windows: the previous window's count is weighted
+// by how many of its seconds still overlap the sliding window (timestamp - timeWindow, timestamp].
+// state = window index mod 2^24 (bits 40-63) | previous count (bits 20-39) | current count (bits 0-19);
+// windows are compared modulo 2^24, so an index behind the stored one counts as current
+class SlidingWindowApproxStrategy extends PackedStrategy{
+    private static final int COUNT_BITS=20,WINDOW_BITS=24; // packed field widths
+    private static final long COUNT_MASK=(1L<<COUNT_BITS)-1,WINDOW_MASK=(1L<<WINDOW_BITS)-1;
+    private final int maxRequests; // allowed requests
+    private final int timeWindow; // window size
+    public SlidingWindowApproxStrategy(int maxRequests,int timeWindow){
+        if(maxRequests>COUNT_MASK)throw new IllegalArgumentException("maxRequests must be below "+(COUNT_MASK+1)); // validation
+        this.maxRequests=maxRequests; // assign limit
+        this.timeWindow=timeWindow; // assign window
+        init();
+    }
+    private static long pack(long window,long previous,long current){
+        return (window&WINDOW_MASK)<<(2*COUNT_BITS)|previous<<COUNT_BITS|current;
+    }
+    long initialState(){return 0;} // window 0, empty (window 0 starts empty anyway)
+    int idleSeconds(){return 2*timeWindow;} // both counters have rolled out
+    // Time Complexity: O(1)
+    long admit(long state,int timestamp,int permits){
+        long index=Math.floorDiv(timestamp,timeWindow); // aligned window
+        long elapsed=timestamp-index*timeWindow; // position inside current window
+        long window=state>>>(2*COUNT_BITS),previousCount=state>>>COUNT_BITS&COUNT_MASK,currentCount=state&COUNT_MASK;
+        long ahead=(index-window)&WINDOW_MASK; // windows since the stored one
+        if(ahead!=0&&ahead<(1L<<(WINDOW_BITS-1))){ // roll windows
+            previousCount=ahead==1?currentCount:0;
+            currentCount=0;
+            window=index;
+        }
+        // previous × (timeWindow - elapsed - 1) / timeWindow + current + permits - 1 < maxRequests, in integers
+        if(previousCount*(timeWindow-elapsed-1)+(currentCount+permits-1)*timeWindow>=(long)maxRequests*timeWindow)
+            return state; // reject
+        return pack(window,previousCount,currentCount+permits); // allow request
+    }
+}
+// ================= SHARED LIMIT STORE =================
+// cluster-wide budget of every resource for its current fixed window. Nodes lease blocks
+// of permits instead of asking per request; the store never grants more than the limit,
+// so the cluster cannot over-admit. Implementations must be safe for concurrent callers
+interface SharedLimitStore{
+    // takes up to requested permits from resourceId's budget of limit for window (window
+    // index = floor(timestamp / timeWindow)); a newer window resets the budget, an older
+    // one gets nothing. Returns the permits granted, 0 when the budget is gone
+    int lease(String resourceId,long window,int limit,int requested);
+    // hands back permits leased for window but never used; ignored once the window has passed
+    void release(String resourceId,long window,int permits);
+    long roundTrips(); // lease and release calls served
+    // once a request would take more than half the remainder, grant only half (at least
+    // one) so a single node cannot strand the tail of the budget in its lease
+    static int grant(long remaining,int requested){
+        if(remaining<=0)return 0; // budget gone
+        if(requested<=remaining/2)return requested;
+        return (int)Math.min(requested,Math.max(1,(remaining+1)/2));
+    }
+}
+// ================= IN-MEMORY STORE =================
+// stand-in for a shared counter service when all nodes live in one JVM (tests, simulation)
+class InMemoryLimitStore implements SharedLimitStore{
+    private final ConcurrentHashMap<String,long[]> budgets=new ConcurrentHashMap<>(); // resourceId -> {window, used}
+    private final AtomicLong roundTrips=new AtomicLong(); // lease calls
+    // Time Complexity: O(1)
+    public int lease(String resourceId,long window,int limit,int requested){
+        roundTrips.incrementAndGet();
+        long[] budget=budgets.computeIfAbsent(resourceId,k->new long[]{Long.MIN_VALUE,0});
+        synchronized(budget){
+            if(window<budget[0])return 0; // stale node clock
+            if(window>budget[0]){budget[0]=window;budget[1]=0;} // new window
+            int granted=SharedLimitStore.grant(limit-budget[1],requested);
+            budget[1]+=granted;
+            return granted;
+        }
+    }
+    // Time Complexity: O(1)
+    public void release(String resourceId,long window,int permits){
+        roundTrips.incrementAndGet();
+        long[] budget=budgets.get(resourceId);
+        if(budget==null)return; // nothing leased
+        synchronized(budget){
+            if(window==budget[0])budget[1]=Math.max(0,budget[1]-permits); // still the current window
+        }
+    }
+    public long roundTrips(){return roundTrips.get();}
+}
+// ================= FILE STORE =================
+// stand-in shared by processes on one host: one 16-byte record {window, used} per resource
+// file, updated under an exclusive FileLock. FileChannel locks are held per JVM (a second
+// lock from the same JVM throws OverlappingFileLockException), so threads of one JVM are
+// serialized first on a static monitor per record file, shared by every store instance
+class FileLimitStore implements SharedLimitStore{
+    private static final ConcurrentHashMap<Path,Object> FILE_LOCKS=new ConcurrentHashMap<>(); // record file -> JVM-wide monitor
+    private final Path directory; // one file per resource, real path so instances agree on keys
+    private final AtomicLong roundTrips=new AtomicLong(); // lease calls
+    public FileLimitStore(Path directory) throws IOException{
+        this.directory=Files.createDirectories(directory).toRealPath(); // assign directory
+    }
+    private static Object monitor(Path file){return FILE_LOCKS.computeIfAbsent(file,k->new Object());} // O(1) expected
+    private static String fileName(String resourceId){ // reversible, filesystem-safe
+        StringBuilder name=new StringBuilder();
+        for(int i=0;i<resourceId.length();i++){
+            char c=resourceId.charAt(i);
+            if(Character.isLetterOrDigit(c)&&c<128||c=='-'||c=='_')name.append(c);
+            else name.append('%').append(String.format("%04x",(int)c));
+        }
+        return name.append(".limit").toString();
+    }
+    // Time Complexity: O(1) plus one locked read-modify-write of the record
+    public int lease(String resourceId,long window,int limit,int requested){
+        roundTrips.incrementAndGet();
+        Path file=directory.resolve(fileName(resourceId));
+        synchronized(monitor(file)){ // this JVM first, then other processes
+            try(FileChannel channel=FileChannel.open(file,StandardOpenOption.CREATE,StandardOpenOption.READ,StandardOpenOption.WRITE)){
+                FileLock lock=channel.lock(); // exclusive across processes
+                try{
+                    long[] record=read(channel); // {window, used}
+                    if(window<record[0])return 0; // stale node clock
+                    if(window>record[0]){record[0]=window;record[1]=0;} // new window
+                    int granted=SharedLimitStore.grant(limit-record[1],requested);
+                    write(channel,record[0],record[1]+granted);
+                    return granted;
+                }finally{
+                    lock.release();
+                }
+            }catch(IOException e){
+                throw new UncheckedIOException("limit store "+directory,e); // surface store failure to the caller
+            }
+        }
+    }
+    // Time Complexity: O(1) plus one locked read-modify-write of the record
+    public void release(String resourceId,long window,int permits){
+        roundTrips.incrementAndGet();
+        Path file=directory.resolve(fileName(resourceId));
+        synchronized(monitor(file)){ // this JVM first, then other processes
+            try(FileChannel channel=FileChannel.open(file,StandardOpenOption.CREATE,StandardOpenOption.READ,StandardOpenOption.WRITE)){
+                FileLock lock=channel.lock(); // exclusive across processes
+                try{
+                    long[] record=read(channel); // {window, used}
+                    if(window==record[0])write(channel,window,Math.max(0,record[1]-permits)); // still the current window
+                }finally{
+                    lock.release();
+                }
+            }catch(IOException e){
+                throw new UncheckedIOException("limit store "+directory,e); // surface store failure to the caller
+            }
+        }
+    }
+    private static long[] read(FileChannel channel) throws IOException{ // empty file: no window yet
+        ByteBuffer record=ByteBuffer.allocate(16);
+        if(channel.read(record,0)<16)return new long[]{Long.MIN_VALUE,0};
+        record.flip();
+        return new long[]{record.getLong(),record.getLong()};
+    }
+    private static void write(FileChannel channel,long window,long used) throws IOException{
+        ByteBuffer record=ByteBuffer.allocate(16);
+        record.putLong(window).putLong(used).flip();
+        channel.write(record,0);
+    }
+    public long roundTrips(){return roundTrips.get();}
+}
+// ================= LEASED WINDOW =================
+// one node's share of a cluster-wide fixed window: admissions are served from a local
+// lease and only an empty lease costs a store round trip. The block size follows local
+// demand (EWMA of permits asked per second, or the current second when it is higher) so
+// a lease lasts about 1/leasesPerWindow of the window: busy nodes renegotiate rarely,
+// quiet nodes hold few permits. Unused permits lapse with the window; once the store
+// reports the budget gone the node rejects locally until the next window. Store round
+// trips run outside the monitor so admissions served from the lease never wait on I/O
+class LeasedWindowStrategy implements RateLimitStrategy{
+    private static final double DECAY=0.5; // weight of history per second
+    private final SharedLimitStore store; // cluster budget
+    private final String resourceId; // store key
+    private final int maxRequests; // cluster-wide limit
+    private final int timeWindow; // window size
+    private final int leasesPerWindow; // target renegotiations per window
+    private long window=Long.MIN_VALUE; // window the lease belongs to
+    private long leased; // permits left in the lease
+    private boolean exhausted; // store had nothing left this window
+    private double rate; // demand EWMA, permits per second
+    private long rateSecond=Long.MIN_VALUE,secondDemand; // second being counted
+    public LeasedWindowStrategy(SharedLimitStore store,String resourceId,int maxRequests,int timeWindow,int leasesPerWindow){
+        this.store=store; // assign store
+        this.resourceId=resourceId;
+        this.maxRequests=maxRequests; // assign limit
+        this.timeWindow=timeWindow; // assign window
+        this.leasesPerWindow=leasesPerWindow;
+    }
+    // Time Complexity: O(1); a store round trip only when the lease runs out
+    public boolean tryAcquire(int permits,int timestamp){
+        if(permits==0)return true; // nothing to take
+        if(permits>maxRequests)return false; // more than the cluster grants in any window
+        long index; // window this call leases for
+        long pooled=0; // permits this call added to the lease
+        synchronized(this){
+            observe(permits,timestamp);
+            index=advance(timestamp);
+        }
+        while(true){
+            int request;
+            synchronized(this){
+                if(window!=index){index=window;pooled=0;} // a newer call moved the window; our permits lapsed with it
+                if(leased>=permits){leased-=permits;return true;} // allow request
+                if(exhausted){ // reject, handing back what this call took so other nodes can use it
+                    pooled=Math.min(pooled,leased);
+                    leased-=pooled;
+                    break;
+                }
+                request=(int)Math.max(permits-leased,leaseSize());
+            }
+            int granted=store.lease(resourceId,index,maxRequests,request); // round trip, monitor released
+            synchronized(this){
+                if(window!=index)continue; // lease arrived for a lapsed window, retry in the current one
+                if(granted==0)exhausted=true; // no round trips until the next window
+                leased+=granted;
+                pooled+=granted;
+            }
+        }
+        if(pooled>0)store.release(resourceId,index,(int)pooled);
+        return false;
+    }
+    public void tryAcquireAll(int timestamp,int[] permits,int[] positions,int from,int to,boolean[] decisions){
+        for(int k=from;k<to;k++)decisions[positions[k]]=tryAcquire(permits[positions[k]],timestamp);
+    }
+    int leaseSize(){ // permits to ask for when renegotiating
+        double demand=Math.max(rate,secondDemand);
+        return (int)Math.min(maxRequests,Math.max(1,Math.ceil(demand*timeWindow/leasesPerWindow)));
+    }
+    private void observe(int permits,int timestamp){ // demand, admitted or not
+        if(timestamp>rateSecond){ // close the counted second, decay over silent ones
+            rate=rate*DECAY+secondDemand*(1-DECAY);
+            if(rateSecond!=Long.MIN_VALUE)rate*=Math.pow(DECAY,Math.min(64,timestamp-rateSecond-1));
+            rateSecond=timestamp;
+            secondDemand=0;
+        }
+        secondDemand+=permits;
+    }
+    private long advance(int timestamp){ // caller holds the monitor; returns the current window
+        long index=Math.floorDiv(timestamp,timeWindow); // aligned window
+        if(index>window){window=index;leased=0;exhausted=false;} // old lease lapses
+        return window;
+    }
+}
+// ================= CLIENT LIMITS =================
+// per-client state of one resource; thread safe
+interface ClientLimits{
+    boolean tryAcquire(String clientKey,int permits,int timestamp); // all permits or none
+    int size(); // clients tracked
+}
+// ================= CLIENT STRATEGY TABLE =================
+// fallback for strategies whose state cannot be packed into a long (the exact log, leased
+// cluster windows): one strategy object per client in an access-ordered map capped at
+// maxClients, evicting the least recently used client. Heavier per client than the table
+class ClientStrategyTable implements ClientLimits{
+    private final Function<String,RateLimitStrategy> factory; // clientKey -> fresh strategy
+    private final LinkedHashMap<String,RateLimitStrategy> strategies; // LRU order
+    public ClientStrategyTable(Function<String,RateLimitStrategy> factory,int maxClients){
+        this.factory=factory; // assign factory
+        this.strategies=new LinkedHashMap<>(16,0.75f,true){
+            protected boolean removeEldestEntry(Map.Entry<String,RateLimitStrategy> eldest){return size()>maxClients;}
+        };
+    }
+    // Time Complexity: O(1) expected map access under the table lock, then the strategy's own cost outside it
+    public boolean tryAcquire(String clientKey,int permits,int timestamp){
+        RateLimitStrategy strategy;
+        synchronized(this){strategy=strategies.computeIfAbsent(clientKey,factory);}
+        return strategy.tryAcquire(permits,timestamp);
+    }
+    public synchronized int size(){return strategies.size();} // O(1)
+}
+// ================= CLIENT LIMITER TABLE =================
+// per-client state for one resource in striped open-addressed primitive tables: 64-bit
+// key hash, packed strategy state, last-seen second and a clock reference bit, about
+// 21 bytes per slot. Client keys themselves are not stored (a 64-bit hash collision
+// merges two clients, negligible at millions of keys). Segments double up to their cap;
+// at the cap a clock sweep evicts clients not referenced since the hand last passed.
+// Every call also sweeps a few slots ahead, dropping clients idle for idleSeconds, which
+// is lossless: their state would have reset anyway. Segments halve below load 1/8
+class ClientLimiterTable implements ClientLimits{
+    private static final int SEGMENT_BITS=6; // 64 stripes
+    private final PackedStrategy limit; // shared admission logic
+    private final Segment[] segments; // stripes by top hash bits
+    // the cap is rounded up so every stripe is a power of two
+    public ClientLimiterTable(PackedStrategy limit,int maxClients){
+        this.limit=limit; // assign logic
+        this.segments=new Segment[1<<SEGMENT_BITS];
+        int slots=(int)Math.max(16,((long)maxClients*4/3>>SEGMENT_BITS)+1); // keeps load ≤ 0.75 at the cap
+        int perSegment=Integer.highestOneBit(slots-1)<<1; // next power of two
+        for(int i=0;i<segments.length;i++)segments[i]=new Segment(perSegment);
+    }
+    static long hash(String key){ // FNV-1a over chars, then a 64-bit finalizer
+        long h=0xcbf29ce484222325L;
+        for(int i=0;i<key.length();i++)h=(h^key.charAt(i))*0x100000001b3L;
+        h^=h>>>33;h*=0xff51afd7ed558ccdL;h^=h>>>33;h*=0xc4ceb9fe1a85ec53L;h^=h>>>33;
+        return h==0?1:h; // 0 marks an empty slot
+    }
+    // Time Complexity: O(key length) + O(1) expected probe under one stripe lock
+    public boolean tryAcquire(String clientKey,int permits,int timestamp){
+        long key=hash(clientKey);
+        return segments[(int)(key>>>(64-SEGMENT_BITS))].tryAcquire(key,permits,timestamp);
+    }
+    public int size(){ // O(stripes)
+        int n=0;
+        for(Segment s:segments)n+=s.size();
+        return n;
+    }
+    public long tableBytes(){ // array payload, O(stripes)
+        long bytes=0;
+        for(Segment s:segments)bytes+=s.bytes();
+        return bytes;
+    }
+    // ================= SEGMENT =================
+    private final class Segment{
+        private final int maxCapacity; // growth cap
+        private long[] keys; // 0 = empty
+        private long[] states; // packed limiter state
+        private int[] lastSeen; // latest timestamp seen
+        private byte[] referenced; // clock bit
+        private int size; // clients stored
+        private int hand; // clock hand
+        Segment(int maxCapacity){
+            this.maxCapacity=maxCapacity;
+            allocate(Math.min(16,maxCapacity));
+        }
+        private void allocate(int capacity){
+            keys=new long[capacity];states=new long[capacity];lastSeen=new int[capacity];referenced=new byte[capacity];
+            size=0;hand=0;
+        }
+        synchronized int size(){return size;}
+        synchronized long bytes(){return (long)keys.length*(8+8+4+1);}
+        private int find(long key){ // slot of key, or ~empty slot where it would go
+            int mask=keys.length-1;
+            for(int i=(int)key&mask;;i=(i+1)&mask){
+                if(keys[i]==key)return i;
+                if(keys[i]==0)return ~i;
+            }
+        }
+        synchronized boolean tryAcquire(long key,int permits,int timestamp){
+            sweepIdle(timestamp,2);
+            int i=find(key);
+            if(i<0){ // new client
+                if((size+1)*4>keys.length*3){ // above load 0.75
+                    if(keys.length<maxCapacity)resize(keys.length*2);
+                    else evictOne(timestamp);
+                }
+                i=~find(key);
+                keys[i]=key;states[i]=limit.initialState();lastSeen[i]=timestamp;
+                size++;
+            }
+            referenced[i]=1;
+            if(timestamp>lastSeen[i])lastSeen[i]=timestamp;
+            if(permits==0)return true; // nothing to take
+            long next=limit.admit(states[i],timestamp,permits);
+            if(next==states[i])return false; // reject
+            states[i]=next; // allow request
             return true;
         }
-        return false; // reject
+        private boolean idle(int i,int now){return (long)now-lastSeen[i]>=limit.idleSeconds();}
+        private void resize(int capacity){ // O(capacity)
+            long[] oldKeys=keys,oldStates=states;
+            int[] oldSeen=lastSeen;
+            byte[] oldRef=referenced;
+            allocate(capacity);
+            for(int j=0;j<oldKeys.length;j++){
+                if(oldKeys[j]==0)continue;
+                int i=~find(oldKeys[j]);
+                keys[i]=oldKeys[j];states[i]=oldStates[j];lastSeen[i]=oldSeen[j];referenced[i]=oldRef[j];
+                size++;
+            }
+        }
+        private void sweepIdle(int now,int steps){ // lossless incremental cleanup
+            for(int s=0;s<steps;s++){
+                int i=hand;
+                hand=(hand+1)&(keys.length-1);
+                if(keys[i]!=0&&idle(i,now))remove(i);
+            }
+            if(keys.length>16&&size*8<keys.length)resize(keys.length/2); // give memory back
+        }
+        private void evictOne(int now){ // second-chance clock
+            for(int s=0;s<2*keys.length+1;s++){
+                int i=hand;
+                hand=(hand+1)&(keys.length-1);
+                if(keys[i]==0)continue;
+                if(referenced[i]!=0&&!idle(i,now)){referenced[i]=0;continue;} // second chance
+                remove(i);
+                return;
+            }
+        }
+        private void remove(int i){ // backward-shift deletion keeps probe chains intact
+            int mask=keys.length-1;
+            keys[i]=0;
+            size--;
+            for(int j=(i+1)&mask;keys[j]!=0;j=(j+1)&mask){
+                int home=(int)keys[j]&mask;
+                if(((j-home)&mask)<((j-i)&mask))continue; // home lies in (i, j]: stays
+                keys[i]=keys[j];states[i]=states[j];lastSeen[i]=lastSeen[j];referenced[i]=referenced[j];
+                keys[j]=0;
+                i=j;
+            }
+        }
     }
 }
-
 // ================= RESOURCE CONFIG =================
 class ResourceConfig{
     RateLimitStrategy strategy; // associated strategy
-    public ResourceConfig(RateLimitStrategy strategy){
+    private final Function<String,RateLimitStrategy> perClient; // builds one client's strategy when state is not packed
+    private volatile ClientLimits clients; // per-client state, created on first keyed call
+    public ResourceConfig(RateLimitStrategy strategy,Function<String,RateLimitStrategy> perClient){
         this.strategy=strategy; // assign strategy
+        this.perClient=perClient; // assign fallback
+    }
+    // Time Complexity: O(1) after the first call
+    public ClientLimits clients(int maxClients){
+        ClientLimits table=clients;
+        if(table!=null)return table;
+        synchronized(this){
+            if(clients==null)clients=strategy instanceof PackedStrategy
+                    ?new ClientLimiterTable((PackedStrategy)strategy,maxClients) // primitive slots
+                    :new ClientStrategyTable(perClient,maxClients); // object per client
+            return clients;
+        }
+    }
+    public int trackedClients(){ // O(stripes), 0 before the first keyed call
+        ClientLimits table=clients;
+        return table==null?0:table.size();
     }
 }
 // ================= MAIN RATE LIMITER =================
 class RateLimiter{
-    private Map<String,ResourceConfig> resources; // resourceId -> config
+    private static final int DEFAULT_MAX_CLIENTS=1<<20; // per resource before clock eviction
+    private static final int LEASES_PER_WINDOW=8; // cluster-window renegotiation target
+    private ConcurrentHashMap<String,ResourceConfig> resources; // resourceId -> config, lock-free reads
+    private final int maxClientsPerResource; // per-client table cap
+    private final SharedLimitStore store; // cluster budgets, null when this node runs alone
     public RateLimiter(){
-        this.resources=new HashMap<>(); // initialize map
+        this(DEFAULT_MAX_CLIENTS); // default cap
+    }
+    public RateLimiter(int maxClientsPerResource){
+        this(maxClientsPerResource,null); // standalone
+    }
+    // distributed mode: "cluster-window" resources share their limit with every node on the same store
+    public RateLimiter(SharedLimitStore store){
+        this(DEFAULT_MAX_CLIENTS,store);
+    }
+    public RateLimiter(int maxClientsPerResource,SharedLimitStore store){
+        this.resources=new ConcurrentHashMap<>(); // initialize map
+        this.maxClientsPerResource=maxClientsPerResource; // assign cap
+        this.store=store; // assign store
     }
     // ================= ADD RESOURCE =================
     // Time Complexity: O(1)
@@ -76,13 +630,27 @@ class RateLimiter{
         int maxRequests=Integer.parseInt(parts[0]); // max count
         int timePeriod=Integer.parseInt(parts[1]); // window size
         RateLimitStrategy strategy=null; // strategy instance
+        Function<String,RateLimitStrategy> perClient=null; // per-client strategies, unpacked state only
         // create strategy
         if(strategyName.equals("fixed-window-counter"))
             strategy=new FixedWindowCounterStrategy(maxRequests,timePeriod);
-        else if(strategyName.equals("sliding-window-counter"))
+        else if(strategyName.equals("sliding-window-counter")){
             strategy=new SlidingWindowCounterStrategy(maxRequests,timePeriod);
+            perClient=client->new SlidingWindowCounterStrategy(maxRequests,timePeriod);
+        }
+        else if(strategyName.equals("token-bucket"))
+            strategy=new TokenBucketStrategy(maxRequests,timePeriod);
+        else if(strategyName.equals("gcra"))
+            strategy=new GcraStrategy(maxRequests,timePeriod);
+        else if(strategyName.equals("sliding-window-approx"))
+            strategy=new SlidingWindowApproxStrategy(maxRequests,timePeriod);
+        else if(strategyName.equals("cluster-window")){
+            if(store==null)throw new IllegalStateException("cluster-window needs a RateLimiter built with a SharedLimitStore");
+            strategy=new LeasedWindowStrategy(store,resourceId,maxRequests,timePeriod,LEASES_PER_WINDOW);
+            perClient=client->new LeasedWindowStrategy(store,resourceId+'\u0000'+client,maxRequests,timePeriod,LEASES_PER_WINDOW); // own cluster budget
+        }
         else return; // invalid strategy
-        resources.put(resourceId,new ResourceConfig(strategy)); // add/update resource
+        resources.put(resourceId,new ResourceConfig(strategy,perClient)); // add/update resource
     }
     // ================= CHECK REQUEST =================
     // Time Complexity: depends on strategy
@@ -91,10 +659,240 @@ class RateLimiter{
         if(config==null)return false; // invalid resource
         return config.strategy.isAllowed(timestamp); // delegate
     }
+    // all permits or none, e.g. a request that costs several units
+    // Time Complexity: depends on strategy
+    public boolean tryAcquire(String resourceId,int permits,int timestamp){
+        checkPermits(permits);
+        ResourceConfig config=resources.get(resourceId); // fetch config
+        if(config==null)return false; // invalid resource
+        return config.strategy.tryAcquire(permits,timestamp); // delegate
+    }
+    private static void checkPermits(int permits){
+        if(permits<0)throw new IllegalArgumentException("permits must be non-negative: "+permits); // validation
+    }
+    // ================= CHECK BATCH =================
+    // decision per item, evaluated in batch order within each resource. Items are grouped
+    // by resource id in a batch-local open-addressed table over the strings' cached hashes
+    // (then a counting sort), so the shared registry is read and each strategy's state is
+    // synchronized once per distinct resource
+    // Time Complexity: O(n) + one strategy call per distinct resource
+    public boolean[] isAllowedBatch(String[] resourceIds,int[] permits,int timestamp){
+        if(resourceIds.length!=permits.length)throw new IllegalArgumentException("resources and permits differ in length");
+        int n=resourceIds.length;
+        boolean[] decisions=new boolean[n]; // unknown resources stay false
+        int mask=Integer.highestOneBit(Math.max(1,n)*2-1)*2-1; // load ≤ 1/2
+        String[] slotName=new String[mask+1]; // batch-local resourceId -> group
+        int[] slotGroup=new int[mask+1],group=new int[n],start=new int[n+1];
+        String[] names=new String[n];
+        int distinct=0;
+        for(int i=0;i<n;i++){
+            checkPermits(permits[i]);
+            String id=resourceIds[i];
+            int h=id.hashCode()*0x9E3779B9,slot=(h^h>>>16)&mask; // spread the cached hash
+            while(slotName[slot]!=null&&!slotName[slot].equals(id))slot=(slot+1)&mask;
+            if(slotName[slot]==null){slotName[slot]=id;slotGroup[slot]=distinct;names[distinct++]=id;} // first item of this resource
+            group[i]=slotGroup[slot];
+            start[group[i]+1]++;
+        }
+        for(int g=0;g<distinct;g++)start[g+1]+=start[g]; // prefix sums
+        int[] positions=new int[n],fill=Arrays.copyOf(start,distinct);
+        for(int i=0;i<n;i++)positions[fill[group[i]]++]=i; // stable: batch order per resource
+        for(int g=0;g<distinct;g++){
+            ResourceConfig config=resources.get(names[g]); // one registry read per resource
+            if(config!=null)config.strategy.tryAcquireAll(timestamp,permits,positions,start[g],start[g+1],decisions);
+        }
+        return decisions;
+    }
+    // ================= CHECK CLIENT REQUEST =================
+    // same limit as the resource, tracked separately per client key
+    // Time Complexity: O(key length) + O(1) expected
+    public boolean isAllowed(String resourceId,String clientKey,int timestamp){
+        ResourceConfig config=resources.get(resourceId); // fetch config
+        if(config==null)return false; // invalid resource
+        return config.clients(maxClientsPerResource).tryAcquire(clientKey,1,timestamp); // per-client state
+    }
+    public boolean tryAcquire(String resourceId,String clientKey,int permits,int timestamp){
+        checkPermits(permits);
+        ResourceConfig config=resources.get(resourceId); // fetch config
+        if(config==null)return false; // invalid resource
+        return config.clients(maxClientsPerResource).tryAcquire(clientKey,permits,timestamp); // per-client state
+    }
+    public int trackedClients(String resourceId){ // O(stripes)
+        ResourceConfig config=resources.get(resourceId);
+        return config==null?0:config.trackedClients();
+    }
+}
+// ================= BENCHMARK =================
+// isAllowed throughput on one hot resource at 1-64 threads: lock-free strategies versus
+// the same limiter serialized by one lock. JMH is not on this tree's classpath, so this is
+// a plain harness: warmup, then a fixed measurement window per configuration
+class RateLimiterBenchmark{
+    private static final long WARMUP_NANOS=200_000_000L,MEASURE_NANOS=500_000_000L;
+    interface Check{boolean isAllowed(String resourceId,int timestamp);}
+    private static long measure(Check check,int threads) throws InterruptedException{
+        long base=System.nanoTime();
+        LongAdder ops=new LongAdder();
+        Thread[] workers=new Thread[threads];
+        for(int t=0;t<threads;t++){
+            workers[t]=new Thread(()->{
+                long local=0;
+                while(true){
+                    long now=System.nanoTime()-base;
+                    if(now>WARMUP_NANOS+MEASURE_NANOS)break;
+                    for(int i=0;i<256;i++)check.isAllowed("hot",(int)(now/1_000_000_000L)); // seconds
+                    if(now>WARMUP_NANOS)local+=256;
+                }
+                ops.add(local);
+            });
+            workers[t].start();
+        }
+        for(Thread w:workers)w.join();
+        return ops.sum()*1_000_000_000L/MEASURE_NANOS;
+    }
+    public static void run() throws InterruptedException{
+        for(String strategy:new String[]{"token-bucket","gcra","fixed-window-counter","sliding-window-approx"}){
+            for(int threads:new int[]{1,2,4,8,16,32,64}){
+                RateLimiter limiter=new RateLimiter();
+                limiter.addResource("hot",strategy,"500000,1"); // mix of admits and rejects
+                long lockFree=measure(limiter::isAllowed,threads);
+                RateLimiter locked=new RateLimiter();
+                locked.addResource("hot",strategy,"500000,1");
+                long serialized=measure((r,ts)->{synchronized(locked){return locked.isAllowed(r,ts);}},threads);
+                System.out.printf("%-22s threads=%2d lock-free=%,d ops/s synchronized=%,d ops/s%n",strategy,threads,lockFree,serialized);
+            }
+        }
+    }
+}
+// ================= CLIENT MEMORY BENCHMARK =================
+// heap per tracked client: 2M keys in the primitive table versus one strategy object
+// per client in a HashMap (the per-resource layout applied to clients)
+class ClientMemoryBenchmark{
+    private static long usedHeap(){
+        Runtime rt=Runtime.getRuntime();
+        for(int i=0;i<3;i++)System.gc();
+        return rt.totalMemory()-rt.freeMemory();
+    }
+    public static void run(){
+        int clients=2_000_000;
+        String[] keys=new String[clients];
+        for(int i=0;i<clients;i++)keys[i]="203.0."+(i>>>16)+"."+(i&0xFFFF); // IP-like keys
+        long before=usedHeap();
+        RateLimiter limiter=new RateLimiter(clients);
+        limiter.addResource("api","token-bucket","100,60");
+        long t0=System.nanoTime();
+        for(int i=0;i<clients;i++)limiter.isAllowed("api",keys[i],1);
+        long elapsed=System.nanoTime()-t0;
+        long table=usedHeap()-before;
+        System.out.printf("primitive table: clients=%,d heap=%,d bytes/client=%.1f insert=%,d ns/op%n",
+                limiter.trackedClients("api"),table,(double)table/limiter.trackedClients("api"),elapsed/clients);
+        t0=System.nanoTime();
+        for(int i=0;i<clients;i++)limiter.isAllowed("api",keys[i],2); // existing clients
+        System.out.printf("primitive table: lookup=%,d ns/op%n",(System.nanoTime()-t0)/clients);
+        for(int i=0;i<clients;i++)limiter.isAllowed("api",keys[i%1000],200); // idle clients are swept
+        System.out.printf("after idle sweep traffic: clients=%,d%n",limiter.trackedClients("api"));
+        limiter=null;
+        int sample=200_000; // smaller sample for the object layout
+        before=usedHeap();
+        Map<String,RateLimitStrategy> objects=new HashMap<>();
+        for(int i=0;i<sample;i++)objects.computeIfAbsent(keys[i],k->new SlidingWindowCounterStrategy(100,60)).isAllowed(1);
+        long map=usedHeap()-before;
+        System.out.printf("object per client: clients=%,d heap=%,d bytes/client=%.1f%n",objects.size(),map,(double)map/objects.size());
+    }
+}
+// ================= BATCH BENCHMARK =================
+// ns per item for the same traffic as per-item tryAcquire calls versus isAllowedBatch at
+// growing batch sizes; items spread over a few resources, so per-batch costs (registry
+// reads, CAS or monitor per resource) amortize while the grouping pass stays per item
+class BatchBenchmark{
+    private static final int ITEMS=4_000_000,RESOURCES=4;
+    private static long perItem(RateLimiter limiter,String[] ids,int[] permits){
+        long t0=System.nanoTime();
+        for(int i=0;i<ITEMS;i++)limiter.tryAcquire(ids[i&(ids.length-1)],permits[i&(ids.length-1)],i>>16);
+        return System.nanoTime()-t0;
+    }
+    private static long batched(RateLimiter limiter,String[] ids,int[] permits,int batch){
+        String[] batchIds=Arrays.copyOf(ids,batch);
+        int[] batchPermits=Arrays.copyOf(permits,batch);
+        long t0=System.nanoTime();
+        for(int i=0;i<ITEMS;i+=batch)limiter.isAllowedBatch(batchIds,batchPermits,i>>16);
+        return System.nanoTime()-t0;
+    }
+    public static void run(){
+        int span=1024; // items drawn from a fixed pattern
+        String[] ids=new String[span];
+        int[] permits=new int[span];
+        Random random=new Random(7);
+        for(int i=0;i<span;i++){ids[i]="api-"+random.nextInt(RESOURCES);permits[i]=1+random.nextInt(3);}
+        for(String strategy:new String[]{"token-bucket","gcra","fixed-window-counter","sliding-window-approx","sliding-window-counter"}){
+            for(int round=0;round<2;round++){ // first round is warmup
+                RateLimiter limiter=new RateLimiter();
+                for(int r=0;r<RESOURCES;r++)limiter.addResource("api-"+r,strategy,"1000000,1");
+                long single=perItem(limiter,ids,permits);
+                StringBuilder line=new StringBuilder(String.format("%-22s per-item=%5.1f ns/item",strategy,(double)single/ITEMS));
+                for(int batch:new int[]{1,8,64,1024}){
+                    limiter=new RateLimiter();
+                    for(int r=0;r<RESOURCES;r++)limiter.addResource("api-"+r,strategy,"1000000,1");
+                    line.append(String.format(" batch%d=%5.1f",batch,(double)batched(limiter,ids,permits,batch)/ITEMS));
+                }
+                if(round==1)System.out.println(line);
+            }
+        }
+    }
+}
+// ================= CLUSTER SIMULATION =================
+// nodes share one resource limit through a store. Demand moves between nodes every 30
+// seconds and the cluster total swings between below and above the limit. Accuracy is
+// admitted permits over what one exact cluster-wide fixed window would admit (the store
+// cannot over-admit, so leases only lose permits stranded in idle nodes' leases);
+// round trips are store calls. Independent limiters show the N× over-admission
+class ClusterSimulation{
+    private static final int NODES=8,SECONDS=1200,LIMIT=2000,WINDOW=10; // 200/s cluster-wide
+    interface NodeFactory{RateLimitStrategy node(SharedLimitStore store);}
+    private static void simulate(String name,SharedLimitStore store,NodeFactory factory){
+        RateLimitStrategy[] nodes=new RateLimitStrategy[NODES];
+        for(int n=0;n<NODES;n++)nodes[n]=factory.node(store);
+        Random random=new Random(11); // same traffic for every configuration
+        long admitted=0,ideal=0,demandInWindow=0;
+        double[] weight=new double[NODES];
+        for(int t=0;t<SECONDS;t++){
+            if(t%30==0)for(int n=0;n<NODES;n++)weight[n]=Math.pow(random.nextDouble(),3); // skewed, shifting
+            double total=0;
+            for(double w:weight)total+=w;
+            int demand=100+(int)(300*(0.5+0.5*Math.sin(t/40.0))); // 100-400 per second
+            List<Integer> arrivals=new ArrayList<>();
+            for(int n=0;n<NODES;n++)for(long k=Math.round(demand*weight[n]/total);k>0;k--)arrivals.add(n);
+            Collections.shuffle(arrivals,random); // nodes serve concurrently
+            for(int n:arrivals)if(nodes[n].isAllowed(t))admitted++;
+            demandInWindow+=arrivals.size();
+            if((t+1)%WINDOW==0){ideal+=Math.min(demandInWindow,LIMIT);demandInWindow=0;} // one exact cluster window
+        }
+        long trips=store==null?0:store.roundTrips();
+        System.out.printf("%-28s accuracy=%6.1f%% round-trips=%,7d per-1k-admitted=%6.1f%n",
+                name,100.0*admitted/ideal,trips,1000.0*trips/Math.max(1,admitted));
+    }
+    private static NodeFactory fixedLease(int lease){
+        return store->new LeasedWindowStrategy(store,"api",LIMIT,WINDOW,1){int leaseSize(){return lease;}};
+    }
+    public static void run() throws IOException{
+        simulate("independent local limiters",null,store->new FixedWindowCounterStrategy(LIMIT,WINDOW));
+        simulate("lease 1 (per request)",new InMemoryLimitStore(),fixedLease(1));
+        simulate("lease 20",new InMemoryLimitStore(),fixedLease(20));
+        simulate("lease 200",new InMemoryLimitStore(),fixedLease(200));
+        for(int leases:new int[]{4,8,32})
+            simulate("adaptive, "+leases+" leases/window",new InMemoryLimitStore(),store->new LeasedWindowStrategy(store,"api",LIMIT,WINDOW,leases));
+        Path directory=Files.createTempDirectory("limits");
+        simulate("adaptive 8, file store",new FileLimitStore(directory),store->new LeasedWindowStrategy(store,"api",LIMIT,WINDOW,8));
+        try(DirectoryStream<Path> files=Files.newDirectoryStream(directory)){for(Path f:files)Files.delete(f);}
+        Files.delete(directory);
+    }
 }
 // ================= DRIVER =================
 public class Main{
-    public static void main(String[] args){ // Time Complexity: O(1)
+    public static void main(String[] args) throws InterruptedException,IOException{ // Time Complexity: O(1)
+        if(args.length>0&&"bench".equals(args[0])){RateLimiterBenchmark.run();return;} // run benchmark
+        if(args.length>0&&"bench-clients".equals(args[0])){ClientMemoryBenchmark.run();return;} // per-client memory
+        if(args.length>0&&"bench-batch".equals(args[0])){BatchBenchmark.run();return;} // batched decisions
+        if(args.length>0&&"bench-cluster".equals(args[0])){ClusterSimulation.run();return;} // leased cluster limits
         RateLimiter limiter=new RateLimiter(); // create limiter
         limiter.addResource("API1","fixed-window-counter","3,5"); // 3 requests per 5 sec
         limiter.addResource("API2","sliding-window-counter","2,3"); // 2 requests per 3 sec
@@ -107,5 +905,42 @@ public class Main{
         System.out.println(limiter.isAllowed("API2",2)); // true
         System.out.println(limiter.isAllowed("API2",3)); // false
         System.out.println(limiter.isAllowed("API2",5)); // true
+        System.out.println("----");
+        limiter.addResource("API3","token-bucket","2,4"); // burst 2, one token per 2 sec
+        System.out.println(limiter.isAllowed("API3",1)); // true
+        System.out.println(limiter.isAllowed("API3",1)); // true
+        System.out.println(limiter.isAllowed("API3",2)); // false
+        System.out.println(limiter.isAllowed("API3",3)); // true
+        System.out.println("----");
+        limiter.addResource("API4","gcra","2,4"); // same limit, one timestamp per resource
+        System.out.println(limiter.isAllowed("API4",1)); // true
+        System.out.println(limiter.isAllowed("API4",1)); // true
+        System.out.println(limiter.isAllowed("API4",2)); // false
+        System.out.println(limiter.isAllowed("API4",3)); // true
+        System.out.println("----");
+        limiter.addResource("API5","sliding-window-approx","4,10"); // two weighted counters
+        for(int t=0;t<5;t++)limiter.isAllowed("API5",t); // 4 admitted in window [0,10)
+        System.out.println(limiter.isAllowed("API5",10)); // true: 4 × 0.9 + 0 < 4
+        System.out.println(limiter.isAllowed("API5",10)); // false: 4 × 0.9 + 1 >= 4
+        System.out.println("----");
+        System.out.println(limiter.isAllowed("API3","alice",20)); // true: alice has a separate bucket
+        System.out.println(limiter.isAllowed("API3","alice",20)); // true
+        System.out.println(limiter.isAllowed("API3","alice",20)); // false
+        System.out.println(limiter.isAllowed("API3","bob",20)); // true: bob is unaffected
+        System.out.println("----");
+        System.out.println(limiter.tryAcquire("API1",3,10)); // true: new window, 3 of 3
+        System.out.println(limiter.tryAcquire("API1",1,11)); // false: window is full
+        System.out.println(Arrays.toString(limiter.isAllowedBatch(
+                new String[]{"API4","API1","API4","API6"},new int[]{2,0,1,1},30))); // [true, true, false, false]
+        System.out.println("----");
+        SharedLimitStore store=new InMemoryLimitStore(); // shared by both nodes
+        RateLimiter nodeA=new RateLimiter(store),nodeB=new RateLimiter(store);
+        nodeA.addResource("API6","cluster-window","3,10"); // 3 per 10 sec across the cluster
+        nodeB.addResource("API6","cluster-window","3,10");
+        System.out.println(nodeA.isAllowed("API6",1)); // true: A leases 2 permits
+        System.out.println(nodeB.isAllowed("API6",1)); // true: B leases the last one
+        System.out.println(nodeB.isAllowed("API6",2)); // false: cluster budget used
+        System.out.println(nodeA.isAllowed("API6",2)); // true: served from A's lease, no round trip
+        System.out.println(nodeA.isAllowed("API6",10)); // true: new window
     }
 }
\ No newline at end of file